@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Generates a {@code LayoutInflater.Factory2} that creates the listed views by calling their constructors directly
+ * instead of looking them up through reflection.</p>
+ *
+ * <p>The factory is generated in the same package as the annotated class and is named after it, e.g.
+ * {@code MainActivity_ViewFactory} for {@code MainActivity}. Pass an instance to
+ * {@code ObservableContextWrapper.Builder#setPrecompiledFactory}.</p>
+ *
+ * <pre>
+ * &#64;GenerateViewFactory({LinearLayout.class, FrameLayout.class, MyCustomView.class})
+ * public class MainActivity extends Activity { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateViewFactory {
+
+  /**
+   * The views to create. Each class must be public, concrete and have a public {@code (Context, AttributeSet)}
+   * constructor.
+   *
+   * @return The view classes used in the app's layouts.
+   */
+  Class<?>[] value();
+
+}
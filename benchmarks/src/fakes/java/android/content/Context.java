@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content;
+
+import android.content.res.Resources;
+
+/**
+ * Stand-in for the framework class so the library's dispatch code can run on a plain JVM.
+ */
+public class Context {
+
+  private final Resources.Theme theme;
+
+  public Context(Resources.Theme theme) {
+    this.theme = theme;
+  }
+
+  public Resources.Theme getTheme() {
+    return theme;
+  }
+
+  public ClassLoader getClassLoader() {
+    return Context.class.getClassLoader();
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content.res;
+
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+/**
+ * Stand-in for the framework class so the library's dispatch code can run on a plain JVM.
+ */
+public class Resources {
+
+  public DisplayMetrics getDisplayMetrics() {
+    return new DisplayMetrics();
+  }
+
+  public ColorStateList getColorStateList(int id) {
+    return null;
+  }
+
+  public ColorStateList getColorStateList(int id, Theme theme) {
+    return null;
+  }
+
+  public Drawable getDrawable(int id) {
+    return null;
+  }
+
+  public Drawable getDrawable(int id, Theme theme) {
+    return null;
+  }
+
+  /**
+   * Resolves attributes straight from the {@link AttributeSet}, with no styles or theme defaults. Like the framework,
+   * {@link TypedArray}s are pooled and reused after {@link TypedArray#recycle()}.
+   */
+  public static class Theme {
+
+    private TypedArray pooled;
+
+    public TypedArray obtainStyledAttributes(AttributeSet set, int[] attrs, int defStyleAttr, int defStyleRes) {
+      TypedArray array = pooled;
+      if (array != null && array.length() >= attrs.length) {
+        pooled = null;
+      } else {
+        array = new TypedArray(this, attrs.length);
+      }
+      array.reset(attrs.length);
+      for (int index = 0; index < attrs.length; index++) {
+        for (int i = 0, count = set.getAttributeCount(); i < count; i++) {
+          if (set.getAttributeNameResource(i) == attrs[index]) {
+            array.set(index, set.getAttributeValue(i));
+            break;
+          }
+        }
+      }
+      return array;
+    }
+
+    public boolean resolveAttribute(int resid, TypedValue outValue, boolean resolveRefs) {
+      return false;
+    }
+
+    void release(TypedArray array) {
+      pooled = array;
+    }
+
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content.res;
+
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+
+/**
+ * Stand-in for the framework class so the library's dispatch code can run on a plain JVM. Only string values are
+ * stored; numeric getters parse them and resource getters return nothing.
+ */
+public class TypedArray {
+
+  private final Resources.Theme theme;
+  private final String[] values;
+  private final int[] indices;
+  private int length;
+  private int indexCount;
+
+  TypedArray(Resources.Theme theme, int capacity) {
+    this.theme = theme;
+    this.values = new String[capacity];
+    this.indices = new int[capacity];
+  }
+
+  void reset(int length) {
+    for (int i = 0; i < this.length; i++) {
+      values[i] = null;
+    }
+    this.length = length;
+    this.indexCount = 0;
+  }
+
+  void set(int index, String value) {
+    values[index] = value;
+    indices[indexCount++] = index;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public int getIndexCount() {
+    return indexCount;
+  }
+
+  public int getIndex(int at) {
+    return indices[at];
+  }
+
+  public boolean hasValue(int index) {
+    return values[index] != null;
+  }
+
+  public String getString(int index) {
+    return values[index];
+  }
+
+  public CharSequence getText(int index) {
+    return values[index];
+  }
+
+  public boolean getValue(int index, TypedValue outValue) {
+    return false;
+  }
+
+  public TypedValue peekValue(int index) {
+    return null;
+  }
+
+  public boolean getBoolean(int index, boolean defValue) {
+    return values[index] != null ? Boolean.parseBoolean(values[index]) : defValue;
+  }
+
+  public int getInt(int index, int defValue) {
+    return values[index] != null ? Integer.parseInt(values[index]) : defValue;
+  }
+
+  public int getInteger(int index, int defValue) {
+    return getInt(index, defValue);
+  }
+
+  public float getFloat(int index, float defValue) {
+    return values[index] != null ? Float.parseFloat(values[index]) : defValue;
+  }
+
+  public int getColor(int index, int defValue) {
+    return getInt(index, defValue);
+  }
+
+  public ColorStateList getColorStateList(int index) {
+    return null;
+  }
+
+  public float getDimension(int index, float defValue) {
+    return getFloat(index, defValue);
+  }
+
+  public int getDimensionPixelSize(int index, int defValue) {
+    return getInt(index, defValue);
+  }
+
+  public int getDimensionPixelOffset(int index, int defValue) {
+    return getInt(index, defValue);
+  }
+
+  public int getLayoutDimension(int index, int defValue) {
+    return getInt(index, defValue);
+  }
+
+  public int getResourceId(int index, int defValue) {
+    return defValue;
+  }
+
+  public Drawable getDrawable(int index) {
+    return null;
+  }
+
+  public Resources getResources() {
+    return null;
+  }
+
+  public void recycle() {
+    theme.release(this);
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.util;
+
+/**
+ * Stand-in for the framework class so the library's dispatch code can run on a plain JVM.
+ */
+public class TypedValue {
+
+  public static final int TYPE_NULL = 0x00;
+  public static final int TYPE_STRING = 0x03;
+  public static final int TYPE_FLOAT = 0x04;
+  public static final int TYPE_DIMENSION = 0x05;
+  public static final int TYPE_FIRST_INT = 0x10;
+  public static final int TYPE_FIRST_COLOR_INT = 0x1c;
+  public static final int TYPE_LAST_COLOR_INT = 0x1f;
+  public static final int TYPE_LAST_INT = 0x1f;
+
+  public int type;
+  public int data;
+  public int resourceId;
+  public CharSequence string;
+
+  public final float getFloat() {
+    return Float.intBitsToFloat(data);
+  }
+
+  public final CharSequence coerceToString() {
+    return type == TYPE_STRING ? string : type == TYPE_NULL ? null : Integer.toString(data);
+  }
+
+  public void setTo(TypedValue other) {
+    type = other.type;
+    data = other.data;
+    resourceId = other.resourceId;
+    string = other.string;
+  }
+
+  public static float complexToDimension(int data, DisplayMetrics metrics) {
+    return data;
+  }
+
+  public static int complexToDimensionPixelSize(int data, DisplayMetrics metrics) {
+    return data;
+  }
+
+  public static int complexToDimensionPixelOffset(int data, DisplayMetrics metrics) {
+    return data;
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per view of {@link AttrsDecorator#apply(View, AttributeSet)} for a given share of views that set the
+ * decorator's attribute, with and without the attribute-name prefilter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AttrsDecoratorBenchmark {
+
+  private static final int VIEWS = 100;
+  private static final int DECORATED_ATTR = 0x7f010010;
+  private static final int[] OTHER_ATTRS = {0x010100d0, 0x010100f4, 0x010100f5, 0x0101014f, 0x7f010001};
+
+  @Param({"0", "10", "50", "100"})
+  int hitPercent;
+
+  @Param({"" + AttrsDecorator.FILTER_NONE, "" + AttrsDecorator.FILTER_ATTRIBUTES})
+  int filter;
+
+  private CountingDecorator decorator;
+  private View[] views;
+  private AttributeSet[] attrs;
+
+  @Setup public void setUp() {
+    Context context = new Context(new Resources.Theme());
+    decorator = new CountingDecorator(filter);
+    views = new View[VIEWS];
+    attrs = new AttributeSet[VIEWS];
+    for (int i = 0; i < VIEWS; i++) {
+      views[i] = new View(context);
+      boolean hit = i < hitPercent;
+      int count = OTHER_ATTRS.length + (hit ? 1 : 0);
+      int[] names = new int[count];
+      String[] values = new String[count];
+      System.arraycopy(OTHER_ATTRS, 0, names, 0, OTHER_ATTRS.length);
+      for (int j = 0; j < OTHER_ATTRS.length; j++) {
+        values[j] = "value" + j;
+      }
+      if (hit) {
+        names[count - 1] = DECORATED_ATTR;
+        values[count - 1] = "decorated";
+      }
+      attrs[i] = new FakeAttributeSet(names, values);
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(VIEWS)
+  public int apply() {
+    for (int i = 0; i < VIEWS; i++) {
+      decorator.apply(views[i], attrs[i]);
+    }
+    return decorator.applied;
+  }
+
+  static final class CountingDecorator extends AttrsDecorator<View> {
+
+    private static final int[] STYLEABLE = {DECORATED_ATTR};
+
+    private final int filter;
+    int applied;
+
+    CountingDecorator(int filter) {
+      this.filter = filter;
+    }
+
+    @Override protected void apply(@NonNull View view, @NonNull TypedArray typedArray, @NonNull int[] setIndices,
+                                   int count) {
+      applied += count;
+    }
+
+    @NonNull @Override protected Class<View> clazz() {
+      return View.class;
+    }
+
+    @Override protected int[] styleable() {
+      return STYLEABLE;
+    }
+
+    @Override protected int attributeFilter() {
+      return filter;
+    }
+
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a custom view: swapping the context into LayoutInflater's private {@code mConstructorArgs} field
+ * through reflection around a constructor map lookup, as {@code createCustomView} used to, versus
+ * {@link ConstructorCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConstructorAccessBenchmark {
+
+  private static final String NAME = ViewTypes.View0.class.getName();
+
+  private final HashMap<String, Constructor<? extends View>> constructorMap = new HashMap<>();
+  private final InflaterStandIn inflater = new InflaterStandIn();
+  private Field constructorArgsField;
+  private Context context;
+  private AttributeSet attrs;
+  private ClassLoader classLoader;
+
+  @Setup public void setUp() throws Exception {
+    constructorArgsField = InflaterStandIn.class.getDeclaredField("mConstructorArgs");
+    constructorArgsField.setAccessible(true);
+    context = new Context(new Resources.Theme());
+    attrs = new FakeAttributeSet(new int[0], new String[0]);
+    classLoader = context.getClassLoader();
+  }
+
+  @Benchmark public Object reflectiveFieldAccess() throws Exception {
+    Object[] args = (Object[]) constructorArgsField.get(inflater);
+    Object lastContext = args[0];
+    args[0] = context;
+    constructorArgsField.set(inflater, args);
+    args[0] = lastContext;
+    constructorArgsField.set(inflater, args);
+    return args;
+  }
+
+  @Benchmark public View reflectiveFieldAccessAndCreate() throws Exception {
+    Object[] args = (Object[]) constructorArgsField.get(inflater);
+    Object lastContext = args[0];
+    args[0] = context;
+    constructorArgsField.set(inflater, args);
+    try {
+      // What LayoutInflater.createView does with the swapped arguments.
+      Constructor<? extends View> constructor = constructorMap.get(NAME);
+      if (constructor == null) {
+        constructor = classLoader.loadClass(NAME).asSubclass(View.class)
+            .getConstructor(Context.class, AttributeSet.class);
+        constructor.setAccessible(true);
+        constructorMap.put(NAME, constructor);
+      }
+      args[1] = attrs;
+      return constructor.newInstance(args);
+    } finally {
+      args[0] = lastContext;
+      constructorArgsField.set(inflater, args);
+    }
+  }
+
+  @Benchmark public View constructorCache() throws Exception {
+    return ConstructorCache.get(NAME, classLoader).newInstance(context, attrs);
+  }
+
+  static final class InflaterStandIn {
+
+    @SuppressWarnings("unused")
+    private Object[] mConstructorArgs = new Object[2];
+
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.TargetedDecorator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per view of finding the decorators that apply to it: looping over every decorator, as
+ * {@link ObservableLayoutInflater#observeAndCreateView} used to, versus looking them up in a {@link DecoratorIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DecoratorDispatchBenchmark {
+
+  private static final int VIEWS = 256;
+
+  @Param({"1", "5", "15"})
+  int decoratorCount;
+
+  @Param({"1", "4", "16"})
+  int viewTypeCount;
+
+  private Decorator[] decorators;
+  private DecoratorIndex index;
+  private View[] views;
+  private AttributeSet attrs;
+
+  @Setup public void setUp() {
+    Context context = new Context(new Resources.Theme());
+    decorators = new Decorator[decoratorCount];
+    for (int i = 0; i < decoratorCount; i++) {
+      decorators[i] = new TypeCheckingDecorator(ViewTypes.TYPES[i % ViewTypes.TYPES.length]);
+    }
+    index = new DecoratorIndex(decorators);
+    views = new View[VIEWS];
+    for (int i = 0; i < VIEWS; i++) {
+      views[i] = ViewTypes.create(i % viewTypeCount, context);
+    }
+    attrs = new FakeAttributeSet(new int[0], new String[0]);
+  }
+
+  @Benchmark @OperationsPerInvocation(VIEWS)
+  public void linear() {
+    for (View view : views) {
+      for (Decorator decorator : decorators) {
+        decorator.apply(view, attrs);
+      }
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(VIEWS)
+  public void indexed() {
+    for (View view : views) {
+      for (Decorator decorator : index.get(view.getClass())) {
+        decorator.apply(view, attrs);
+      }
+    }
+  }
+
+  /**
+   * Checks the view type on every call like {@code AttrsDecorator} does and counts the views it applies to.
+   */
+  static final class TypeCheckingDecorator implements TargetedDecorator {
+
+    private final Class<?> type;
+    int applied;
+
+    TypeCheckingDecorator(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override public void apply(@NonNull View view, @NonNull AttributeSet attrs) {
+      if (type.isAssignableFrom(view.getClass())) {
+        applied++;
+      }
+    }
+
+    @NonNull @Override public Class<?>[] targetTypes() {
+      return new Class<?>[]{type};
+    }
+
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.util.AttributeSet;
+
+/**
+ * An {@link AttributeSet} backed by arrays of attribute name resource IDs and values.
+ */
+final class FakeAttributeSet implements AttributeSet {
+
+  private final int[] nameResources;
+  private final String[] values;
+
+  FakeAttributeSet(int[] nameResources, String[] values) {
+    this.nameResources = nameResources;
+    this.values = values;
+  }
+
+  @Override public int getAttributeCount() {
+    return nameResources.length;
+  }
+
+  @Override public String getAttributeName(int index) {
+    return "attr" + nameResources[index];
+  }
+
+  @Override public String getAttributeValue(int index) {
+    return values[index];
+  }
+
+  @Override public String getAttributeValue(String namespace, String name) {
+    return null;
+  }
+
+  @Override public String getPositionDescription() {
+    return "benchmark";
+  }
+
+  @Override public int getAttributeNameResource(int index) {
+    return nameResources[index];
+  }
+
+  @Override public int getAttributeListValue(String namespace, String attribute, String[] options, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public boolean getAttributeBooleanValue(String namespace, String attribute, boolean defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeResourceValue(String namespace, String attribute, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeIntValue(String namespace, String attribute, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeUnsignedIntValue(String namespace, String attribute, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public float getAttributeFloatValue(String namespace, String attribute, float defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeListValue(int index, String[] options, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public boolean getAttributeBooleanValue(int index, boolean defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeResourceValue(int index, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeIntValue(int index, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getAttributeUnsignedIntValue(int index, int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public float getAttributeFloatValue(int index, float defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public String getIdAttribute() {
+    return null;
+  }
+
+  @Override public String getClassAttribute() {
+    return null;
+  }
+
+  @Override public int getIdAttributeResourceValue(int defaultValue) {
+    return defaultValue;
+  }
+
+  @Override public int getStyleAttribute() {
+    return 0;
+  }
+
+}
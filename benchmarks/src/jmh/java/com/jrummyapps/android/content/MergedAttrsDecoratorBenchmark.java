@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.StyledAttributes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per view of several {@link AttrsDecorator}s for the same view type, each resolving its own styleable versus
+ * merged into one {@code obtainStyledAttributes} call by the {@link DecoratorIndex}. The fake theme has no styles, so
+ * this measures the per-call overhead only; on a device each call also resolves the theme and styles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MergedAttrsDecoratorBenchmark {
+
+  private static final int[] ATTRS = {0x010100d0, 0x010100f4, 0x010100f5, 0x0101014f, 0x7f010001, 0x7f010002};
+
+  @Param({"1", "3", "5"})
+  int decoratorCount;
+
+  @Param({"false", "true"})
+  boolean mergeable;
+
+  private DecoratorIndex index;
+  private View view;
+  private AttributeSet attrs;
+
+  @Setup public void setUp() {
+    Decorator[] decorators = new Decorator[decoratorCount];
+    for (int i = 0; i < decoratorCount; i++) {
+      decorators[i] = new StyleableDecorator(new int[]{ATTRS[i], 0x7f010010 + i}, mergeable);
+    }
+    index = new DecoratorIndex(decorators);
+    view = new View(new Context(new Resources.Theme()));
+    String[] values = new String[ATTRS.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = "value" + i;
+    }
+    attrs = new FakeAttributeSet(ATTRS, values);
+  }
+
+  @Benchmark
+  public void apply() {
+    for (Decorator decorator : index.get(view.getClass())) {
+      decorator.apply(view, attrs);
+    }
+  }
+
+  static final class StyleableDecorator extends AttrsDecorator<View> {
+
+    private final int[] styleable;
+    private final boolean mergeable;
+    int applied;
+
+    StyleableDecorator(int[] styleable, boolean mergeable) {
+      this.styleable = styleable;
+      this.mergeable = mergeable;
+    }
+
+    @Override protected void apply(@NonNull View view, @NonNull TypedArray typedArray,
+                                   @NonNull int[] setIndices, int count) {
+      applied += count;
+    }
+
+    @Override protected void apply(@NonNull View view, @NonNull StyledAttributes attributes) {
+      applied += attributes.getIndexCount();
+    }
+
+    @Override protected boolean isMergeable() {
+      return mergeable;
+    }
+
+    @NonNull @Override protected Class<View> clazz() {
+      return View.class;
+    }
+
+    @Override protected int[] styleable() {
+      return styleable;
+    }
+
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Distinct view classes so dispatch is measured over more than one concrete type.
+ */
+final class ViewTypes {
+
+  static final Class<?>[] TYPES = {
+      View0.class, View1.class, View2.class, View3.class, View4.class, View5.class, View6.class, View7.class,
+      View8.class, View9.class, View10.class, View11.class, View12.class, View13.class, View14.class, View15.class
+  };
+
+  static View create(int type, Context context) {
+    try {
+      return (View) TYPES[type].getConstructor(Context.class, AttributeSet.class).newInstance(context, null);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static class BaseView extends View {
+
+    public BaseView(Context context, AttributeSet attrs) {
+      super(context);
+    }
+
+  }
+
+  public static class View0 extends BaseView {
+
+    public View0(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View1 extends BaseView {
+
+    public View1(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View2 extends BaseView {
+
+    public View2(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View3 extends BaseView {
+
+    public View3(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View4 extends BaseView {
+
+    public View4(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View5 extends BaseView {
+
+    public View5(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View6 extends BaseView {
+
+    public View6(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View7 extends BaseView {
+
+    public View7(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View8 extends BaseView {
+
+    public View8(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View9 extends BaseView {
+
+    public View9(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View10 extends BaseView {
+
+    public View10(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View11 extends BaseView {
+
+    public View11(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View12 extends BaseView {
+
+    public View12(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View13 extends BaseView {
+
+    public View13(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View14 extends BaseView {
+
+    public View14(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  public static class View15 extends BaseView {
+
+    public View15(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+  }
+
+  private ViewTypes() {
+    throw new AssertionError("no instances");
+  }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.compiler;
+
+import com.jrummyapps.android.content.annotation.GenerateViewFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code LayoutInflater.Factory2} for each class annotated with {@link GenerateViewFactory}. The factory
+ * switches on the tag name and calls the view constructors directly.
+ */
+public final class ViewFactoryProcessor extends AbstractProcessor {
+
+  static final String SUFFIX = "_ViewFactory";
+
+  private static final String CONTEXT = "android.content.Context";
+  private static final String ATTRIBUTE_SET = "android.util.AttributeSet";
+  private static final String VIEW_STUB = "android.view.ViewStub";
+
+  /** Packages LayoutInflater looks up short tag names in. */
+  private static final String[] SHORT_NAME_PACKAGES = {"android.widget", "android.webkit", "android.view"};
+
+  @Override public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(GenerateViewFactory.class.getCanonicalName());
+  }
+
+  @Override public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(GenerateViewFactory.class)) {
+      if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.INTERFACE) {
+        error(element, "@GenerateViewFactory can only be applied to classes.");
+        continue;
+      }
+      TypeElement type = (TypeElement) element;
+      List<TypeElement> views = getViews(type);
+      if (views != null) {
+        try {
+          writeFactory(type, views);
+        } catch (IOException e) {
+          error(type, "Unable to write view factory for " + type.getQualifiedName() + ": " + e.getMessage());
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read the view classes from the annotation. Returns null if one of them can't be created by the factory.
+   */
+  private List<TypeElement> getViews(TypeElement type) {
+    Set<TypeElement> views = new LinkedHashSet<>();
+    boolean valid = true;
+    for (AnnotationValue value : getValues(type)) {
+      Object mirror = value.getValue();
+      if (!(mirror instanceof DeclaredType)) {
+        error(type, "Unknown view class: " + mirror);
+        valid = false;
+        continue;
+      }
+      TypeElement view = (TypeElement) ((DeclaredType) mirror).asElement();
+      if (VIEW_STUB.equals(view.getQualifiedName().toString())) {
+        // ViewStub needs an inflater for its context, leave it to LayoutInflater.
+        warning(type, "ViewStub is always created by LayoutInflater and was skipped.");
+        continue;
+      }
+      if (!isInstantiable(view)) {
+        error(type, view.getQualifiedName() + " must be a public, non-abstract class with a public "
+            + "(Context, AttributeSet) constructor.");
+        valid = false;
+        continue;
+      }
+      views.add(view);
+    }
+    return valid ? new ArrayList<>(views) : null;
+  }
+
+  private List<? extends AnnotationValue> getValues(TypeElement type) {
+    for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+      if (!annotationType.getQualifiedName().contentEquals(GenerateViewFactory.class.getCanonicalName())) {
+        continue;
+      }
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+          : annotation.getElementValues().entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("value")) {
+          @SuppressWarnings("unchecked")
+          List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) entry.getValue().getValue();
+          return values;
+        }
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  private static boolean isInstantiable(TypeElement view) {
+    Set<Modifier> modifiers = view.getModifiers();
+    if (view.getKind() != ElementKind.CLASS || !modifiers.contains(Modifier.PUBLIC)
+        || modifiers.contains(Modifier.ABSTRACT)) {
+      return false;
+    }
+    if (view.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC)) {
+      return false;
+    }
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(view.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+        continue;
+      }
+      List<? extends VariableElement> parameters = constructor.getParameters();
+      if (parameters.size() == 2
+          && isType(parameters.get(0).asType(), CONTEXT)
+          && isType(parameters.get(1).asType(), ATTRIBUTE_SET)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isType(TypeMirror mirror, String name) {
+    return mirror instanceof DeclaredType
+        && ((TypeElement) ((DeclaredType) mirror).asElement()).getQualifiedName().contentEquals(name);
+  }
+
+  private void writeFactory(TypeElement type, List<TypeElement> views) throws IOException {
+    String packageName = getPackage(type).getQualifiedName().toString();
+    String className = getFlatName(type, packageName) + SUFFIX;
+    String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("import android.content.Context;\n")
+        .append("import android.util.AttributeSet;\n")
+        .append("import android.view.LayoutInflater;\n")
+        .append("import android.view.View;\n\n")
+        .append("/**\n")
+        .append(" * Generated by ").append(getClass().getSimpleName())
+        .append(" for {@link ").append(type.getQualifiedName()).append("}. Do not modify.\n")
+        .append(" */\n")
+        .append("public final class ").append(className).append(" implements LayoutInflater.Factory2 {\n\n")
+        .append("  @Override public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {\n")
+        .append("    return onCreateView(name, context, attrs);\n")
+        .append("  }\n\n")
+        .append("  @Override public View onCreateView(String name, Context context, AttributeSet attrs) {\n")
+        .append("    switch (name) {\n");
+    for (TypeElement view : views) {
+      String viewName = view.getQualifiedName().toString();
+      String binaryName = processingEnv.getElementUtils().getBinaryName(view).toString();
+      if (view.getNestingKind().isNested()) {
+        // Nested views can only be declared as <view class="com.example.Outer$Inner"/>. LayoutInflater passes the class
+        // attribute to the factories as the name, so nested views are matched by their binary name only.
+        source.append("      case \"").append(binaryName).append("\":\n");
+      } else {
+        if (isShortName(view)) {
+          source.append("      case \"").append(view.getSimpleName()).append("\":\n");
+        }
+        source.append("      case \"").append(viewName).append("\":\n");
+      }
+      source.append("        return new ").append(viewName).append("(context, attrs);\n");
+    }
+    source.append("      default:\n")
+        .append("        return null;\n")
+        .append("    }\n")
+        .append("  }\n\n")
+        .append("}\n");
+
+    JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+    Writer writer = file.openWriter();
+    try {
+      writer.write(source.toString());
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Check if LayoutInflater resolves the simple name of the view, i.e. the view is in one of the framework packages
+   * and isn't shadowed by a class with the same name in a package that is searched first.
+   */
+  private boolean isShortName(TypeElement view) {
+    String packageName = getPackage(view).getQualifiedName().toString();
+    for (String candidate : SHORT_NAME_PACKAGES) {
+      if (candidate.equals(packageName)) {
+        return true;
+      }
+      String shadow = candidate + "." + view.getSimpleName();
+      if (processingEnv.getElementUtils().getTypeElement(shadow) != null) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static PackageElement getPackage(Element element) {
+    while (element.getKind() != ElementKind.PACKAGE) {
+      element = element.getEnclosingElement();
+    }
+    return (PackageElement) element;
+  }
+
+  private static String getFlatName(TypeElement type, String packageName) {
+    String name = type.getQualifiedName().toString();
+    if (!packageName.isEmpty()) {
+      name = name.substring(packageName.length() + 1);
+    }
+    return name.replace('.', '_');
+  }
+
+  private void error(Element element, String message) {
+    getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private void warning(Element element, String message) {
+    getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+  }
+
+  private Messager getMessager() {
+    return processingEnv.getMessager();
+  }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.observableinflator.demo.bench;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.LinearLayout;
+
+/**
+ * A custom view for the inflation benchmark layouts. It behaves like a LinearLayout but is created through its
+ * constructor like any other custom view.
+ */
+public class BenchLinearLayout extends LinearLayout {
+
+  public BenchLinearLayout(Context context, AttributeSet attrs) {
+    super(context, attrs);
+  }
+
+}
@@ -16,30 +16,38 @@
 
 package com.jrummyapps.observableinflator.demo;
 
-import android.content.res.TypedArray;
-import android.graphics.Typeface;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
 import android.widget.TextView;
 
-import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.AttributeBinder;
+import com.jrummyapps.android.content.decor.ScheduledDecorator;
+import com.jrummyapps.android.graphics.TypefaceCache;
 
-public class FontDecorator extends AttrsDecorator<TextView> {
+public class FontDecorator extends AttributeBinder<TextView> implements ScheduledDecorator {
 
-  @Override protected void apply(TextView view, TypedArray typedArray) {
-    String typefacePath = typedArray.getString(R.styleable.FontDecorator_decorTypefaceAsset);
-    if (typefacePath == null) {
-      return;
-    }
-    Typeface typeface = TypefaceUtils.get(view.getContext(), typefacePath);
-    view.setTypeface(typeface);
-  }
+  public FontDecorator() {
+    super(new Builder<>(TextView.class, R.styleable.FontDecorator)
+        .bindString(R.styleable.FontDecorator_decorTypefaceAsset, new ValueSetter<TextView, String>() {
+
+          @Override public void set(@NonNull TextView view, @Nullable String typefacePath) {
+            if (typefacePath == null) {
+              return;
+            }
+            // Sets the typeface now if it was preloaded, otherwise once it has loaded in the background.
+            TypefaceCache.getInstance().applyTo(view, typefacePath, null);
+          }
 
-  @Override @NonNull protected Class<TextView> clazz() {
-    return TextView.class;
+        })
+        // Only tags that declare decorTypefaceAsset, which also lets the generated decoration table skip all other
+        // tags.
+        .setAttributeFilter(FILTER_ATTRIBUTES));
   }
 
-  @Override protected int[] styleable() {
-    return R.styleable.FontDecorator;
+  @Override public int schedule(View view) {
+    // Looking up the typeface doesn't need to happen during inflation, only before the first frame.
+    return SCHEDULE_BEFORE_DRAW;
   }
 
 }
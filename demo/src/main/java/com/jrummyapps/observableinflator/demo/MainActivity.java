@@ -24,19 +24,26 @@ import android.support.v7.app.AppCompatActivity;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import com.jrummyapps.android.content.ObservableContextWrapper;
 import com.jrummyapps.android.content.ObservableViewFactory;
+import com.jrummyapps.android.content.annotation.GenerateViewFactory;
+import com.jrummyapps.android.graphics.TypefaceCache;
 
+@GenerateViewFactory(LinearLayout.class)
 public class MainActivity extends AppCompatActivity implements ObservableViewFactory {
 
   private static final String TAG = "MainActivity";
 
   @Override protected void attachBaseContext(Context newBase) {
+    TypefaceCache.getInstance().preload(newBase, "Ubuntu-M.ttf");
     super.attachBaseContext(ObservableContextWrapper.wrap(newBase)
         .setDecorators(new FontDecorator())
         .setViewFactory(this)
+        .setPrecompiledFactory(new MainActivity_ViewFactory())
+        .setDecorationTable(GeneratedDecorationTable.create())
         .create());
   }
 
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.observableinflator.demo;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import com.jrummyapps.android.content.ObservableContextWrapper;
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.Decorator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Measures how much {@link com.jrummyapps.android.content.ObservableLayoutInflater} and a number of decorators add
+ * to a stock {@link LayoutInflater}. Both inflaters belong to an Activity so that custom views go through the same
+ * path as in an app. Each layout is inflated by both in turn and the medians are compared. The test fails if the
+ * relative overhead of any layout is above the budget.</p>
+ *
+ * <p>The layouts other than activity_main are in src/debug/res. Set these system properties in build.gradle or with
+ * {@code -P} on the command line:</p>
+ *
+ * <ul>
+ * <li>{@code inflation.overheadBudget}: the allowed overhead as a fraction of the stock time, default 0.3,</li>
+ * <li>{@code inflation.decorators}: the number of decorators, default 4,</li>
+ * <li>{@code inflation.iterations}: the measured inflations per layout and inflater, default 200,</li>
+ * <li>{@code inflation.report}: a file to write the results to as CSV, optional.</li>
+ * </ul>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class InflationOverheadBenchmark {
+
+  private static final int[] LAYOUTS = {
+      R.layout.activity_main, R.layout.bench_deep, R.layout.bench_wide, R.layout.bench_custom_views
+  };
+
+  private static final double BUDGET = Double.parseDouble(System.getProperty("inflation.overheadBudget", "0.3"));
+  private static final int DECORATORS = Integer.getInteger("inflation.decorators", 4);
+  private static final int ITERATIONS = Integer.getInteger("inflation.iterations", 200);
+  private static final int WARMUP_ITERATIONS = Math.max(20, ITERATIONS / 4);
+
+  @Test public void overheadIsWithinBudget() throws IOException {
+    Activity stockActivity = Robolectric.buildActivity(StockActivity.class).create().get();
+    Activity observableActivity = Robolectric.buildActivity(ObservableActivity.class).create().get();
+    LayoutInflater stock = stockActivity.getLayoutInflater();
+    LayoutInflater observable = observableActivity.getLayoutInflater();
+    ViewGroup stockParent = new FrameLayout(stockActivity);
+    ViewGroup observableParent = new FrameLayout(observableActivity);
+
+    List<String> failures = new ArrayList<>();
+    StringBuilder report = new StringBuilder("layout,views,stockMicros,observableMicros,overhead\n");
+    System.out.println(String.format(Locale.US, "%d decorators, budget %.0f%%", DECORATORS, BUDGET * 100));
+    for (int layout : LAYOUTS) {
+      String name = stockActivity.getResources().getResourceEntryName(layout);
+      long[] stockTimes = new long[ITERATIONS];
+      long[] observableTimes = new long[ITERATIONS];
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+        stock.inflate(layout, stockParent, false);
+        observable.inflate(layout, observableParent, false);
+      }
+      int views = 0;
+      for (int i = 0; i < ITERATIONS; i++) {
+        // Alternate between the inflaters so that drift in the JVM affects both equally.
+        long start = System.nanoTime();
+        View view = stock.inflate(layout, stockParent, false);
+        stockTimes[i] = System.nanoTime() - start;
+        start = System.nanoTime();
+        observable.inflate(layout, observableParent, false);
+        observableTimes[i] = System.nanoTime() - start;
+        views = countViews(view);
+      }
+      long stockMedian = median(stockTimes);
+      long observableMedian = median(observableTimes);
+      double overhead = (double) (observableMedian - stockMedian) / stockMedian;
+      System.out.println(String.format(Locale.US, "%-20s %4d views  stock %8.1f us  observable %8.1f us  %+6.1f%%",
+          name, views, stockMedian / 1000.0, observableMedian / 1000.0, overhead * 100));
+      report.append(String.format(Locale.US, "%s,%d,%.1f,%.1f,%.4f\n", name, views, stockMedian / 1000.0,
+          observableMedian / 1000.0, overhead));
+      if (overhead > BUDGET) {
+        failures.add(String.format(Locale.US, "%s: %.1f%%", name, overhead * 100));
+      }
+    }
+    writeReport(report.toString());
+    assertTrue("Inflation overhead above " + Math.round(BUDGET * 100) + "%: " + failures, failures.isEmpty());
+  }
+
+  private static void writeReport(String report) throws IOException {
+    String path = System.getProperty("inflation.report");
+    if (path == null) {
+      return;
+    }
+    File file = new File(path);
+    File dir = file.getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Unable to create " + dir);
+    }
+    Writer writer = new FileWriter(file);
+    try {
+      writer.write(report);
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static long median(long[] times) {
+    long[] sorted = times.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  private static int countViews(View view) {
+    int count = 1;
+    if (view instanceof ViewGroup) {
+      ViewGroup group = (ViewGroup) view;
+      for (int i = 0; i < group.getChildCount(); i++) {
+        count += countViews(group.getChildAt(i));
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A mix of the kinds of decorators apps use: one for every view, one that reads attributes of every view and one
+   * that reads attributes of text views only.
+   */
+  static Decorator[] createDecorators(int count) {
+    Decorator[] decorators = new Decorator[count];
+    for (int i = 0; i < count; i++) {
+      switch (i % 3) {
+        case 0:
+          decorators[i] = new IdDecorator();
+          break;
+        case 1:
+          decorators[i] = new ContentDescriptionDecorator();
+          break;
+        default:
+          decorators[i] = new TextColorDecorator();
+          break;
+      }
+    }
+    return decorators;
+  }
+
+  public static class StockActivity extends Activity {
+  }
+
+  public static class ObservableActivity extends Activity {
+
+    @Override protected void attachBaseContext(Context newBase) {
+      super.attachBaseContext(ObservableContextWrapper.wrap(newBase)
+          .setDecorators(createDecorators(DECORATORS))
+          .create());
+    }
+
+  }
+
+  static class IdDecorator implements Decorator {
+
+    int ids;
+
+    @Override public void apply(@NonNull View view, @NonNull AttributeSet attrs) {
+      if (view.getId() != View.NO_ID) {
+        ids++;
+      }
+    }
+
+  }
+
+  static class ContentDescriptionDecorator extends AttrsDecorator<View> {
+
+    private static final int[] ATTRS = {android.R.attr.contentDescription};
+
+    @Override protected void apply(@NonNull View view, @NonNull TypedArray typedArray) {
+      CharSequence description = typedArray.getText(0);
+      if (description != null) {
+        view.setContentDescription(description);
+      }
+    }
+
+    @NonNull @Override protected Class<View> clazz() {
+      return View.class;
+    }
+
+    @Override protected int[] styleable() {
+      return ATTRS;
+    }
+
+  }
+
+  static class TextColorDecorator extends AttrsDecorator<TextView> {
+
+    private static final int[] ATTRS = {android.R.attr.textColor};
+
+    @Override protected void apply(@NonNull TextView view, @NonNull TypedArray typedArray) {
+      if (typedArray.hasValue(0)) {
+        view.setTextColor(typedArray.getColorStateList(0));
+      }
+    }
+
+    @NonNull @Override protected Class<TextView> clazz() {
+      return TextView.class;
+    }
+
+    @Override protected int[] styleable() {
+      return ATTRS;
+    }
+
+  }
+
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>An immutable copy of an {@link AttributeSet} that stays valid after inflation. The {@link AttributeSet} passed to
+ * {@link ObservableViewFactory#onViewCreated(View, AttributeSet)} and
+ * {@link com.jrummyapps.android.content.decor.Decorator#apply(View, AttributeSet)} is the XML parser itself and is only
+ * valid during the callback, so observers that want to use the attributes later should keep a snapshot instead:</p>
+ *
+ * <pre>
+ * final AttributeSnapshot attrs = AttributeSnapshot.of(attributeSet);
+ * </pre>
+ *
+ * <p>The attribute names, name resource IDs, raw values and resource values are kept in arrays with interned strings.
+ * Tags with identical attributes, for example the same tag in a layout that is inflated many times, share one copy of
+ * those arrays. Typed values are parsed from the raw strings on demand.</p>
+ *
+ * <p>A snapshot can't be passed to {@code Theme.obtainStyledAttributes}, which only accepts the compiled XML parser.
+ * Resolve styled attributes during the callback if you need them.</p>
+ */
+public final class AttributeSnapshot implements AttributeSet {
+
+  private static final int MAX_SHARED = 512;
+
+  private static final ConcurrentHashMap<Values, Values> SHARED = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, String> STRINGS = new ConcurrentHashMap<>();
+
+  /**
+   * Take a snapshot of the attributes.
+   *
+   * @param attrs
+   *     The attributes of a tag, usually the live parser passed during inflation.
+   * @return A snapshot that can be kept after inflation, or {@code attrs} if it already is one.
+   */
+  @NonNull public static AttributeSnapshot of(@NonNull AttributeSet attrs) {
+    if (attrs instanceof AttributeSnapshot) {
+      return (AttributeSnapshot) attrs;
+    }
+    return new AttributeSnapshot(attrs.getPositionDescription(), share(new Values(attrs)));
+  }
+
+  private static Values share(Values values) {
+    Values shared = SHARED.get(values);
+    if (shared != null) {
+      return shared;
+    }
+    if (SHARED.size() >= MAX_SHARED) {
+      SHARED.clear();
+    }
+    shared = SHARED.putIfAbsent(values, values);
+    return shared != null ? shared : values;
+  }
+
+  private static String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    String interned = STRINGS.get(value);
+    if (interned != null) {
+      return interned;
+    }
+    if (STRINGS.size() >= MAX_SHARED * 4) {
+      STRINGS.clear();
+    }
+    interned = STRINGS.putIfAbsent(value, value);
+    return interned != null ? interned : value;
+  }
+
+  private final String positionDescription;
+  private final String[] namespaces;
+  private final String[] names;
+  private final String[] values;
+  private final int[] nameResources;
+  private final int[] resourceValues;
+  private final String idAttribute;
+  private final String classAttribute;
+  private final int idResourceValue;
+  private final int styleAttribute;
+
+  private AttributeSnapshot(String positionDescription, Values shared) {
+    this.positionDescription = positionDescription;
+    this.namespaces = shared.namespaces;
+    this.names = shared.names;
+    this.values = shared.values;
+    this.nameResources = shared.nameResources;
+    this.resourceValues = shared.resourceValues;
+    this.idAttribute = shared.idAttribute;
+    this.classAttribute = shared.classAttribute;
+    this.idResourceValue = shared.idResourceValue;
+    this.styleAttribute = shared.styleAttribute;
+  }
+
+  @Override public int getAttributeCount() {
+    return names.length;
+  }
+
+  @Override public String getAttributeName(int index) {
+    return names[index];
+  }
+
+  @Override public String getAttributeValue(int index) {
+    return values[index];
+  }
+
+  @Override public String getAttributeValue(String namespace, String name) {
+    int index = indexOf(namespace, name);
+    return index >= 0 ? values[index] : null;
+  }
+
+  @Override public String getPositionDescription() {
+    return positionDescription;
+  }
+
+  @Override public int getAttributeNameResource(int index) {
+    return nameResources[index];
+  }
+
+  @Override public int getAttributeListValue(String namespace, String attribute, String[] options, int defaultValue) {
+    int index = indexOf(namespace, attribute);
+    return index >= 0 ? getAttributeListValue(index, options, defaultValue) : defaultValue;
+  }
+
+  @Override public boolean getAttributeBooleanValue(String namespace, String attribute, boolean defaultValue) {
+    int index = indexOf(namespace, attribute);
+    return index >= 0 ? getAttributeBooleanValue(index, defaultValue) : defaultValue;
+  }
+
+  @Override public int getAttributeResourceValue(String namespace, String attribute, int defaultValue) {
+    int index = indexOf(namespace, attribute);
+    return index >= 0 ? getAttributeResourceValue(index, defaultValue) : defaultValue;
+  }
+
+  @Override public int getAttributeIntValue(String namespace, String attribute, int defaultValue) {
+    int index = indexOf(namespace, attribute);
+    return index >= 0 ? getAttributeIntValue(index, defaultValue) : defaultValue;
+  }
+
+  @Override public int getAttributeUnsignedIntValue(String namespace, String attribute, int defaultValue) {
+    int index = indexOf(namespace, attribute);
+    return index >= 0 ? getAttributeUnsignedIntValue(index, defaultValue) : defaultValue;
+  }
+
+  @Override public float getAttributeFloatValue(String namespace, String attribute, float defaultValue) {
+    int index = indexOf(namespace, attribute);
+    return index >= 0 ? getAttributeFloatValue(index, defaultValue) : defaultValue;
+  }
+
+  @Override public int getAttributeListValue(int index, String[] options, int defaultValue) {
+    String value = values[index];
+    if (value != null && options != null) {
+      for (int i = 0; i < options.length; i++) {
+        if (value.equals(options[i])) {
+          return i;
+        }
+      }
+    }
+    return defaultValue;
+  }
+
+  @Override public boolean getAttributeBooleanValue(int index, boolean defaultValue) {
+    String value = values[index];
+    if (value == null) {
+      return defaultValue;
+    }
+    if ("true".equalsIgnoreCase(value)) {
+      return true;
+    }
+    if ("false".equalsIgnoreCase(value)) {
+      return false;
+    }
+    return parseInt(value, defaultValue ? 1 : 0) != 0;
+  }
+
+  @Override public int getAttributeResourceValue(int index, int defaultValue) {
+    int value = resourceValues[index];
+    return value != 0 ? value : defaultValue;
+  }
+
+  @Override public int getAttributeIntValue(int index, int defaultValue) {
+    String value = values[index];
+    return value != null ? parseInt(value, defaultValue) : defaultValue;
+  }
+
+  @Override public int getAttributeUnsignedIntValue(int index, int defaultValue) {
+    return getAttributeIntValue(index, defaultValue);
+  }
+
+  @Override public float getAttributeFloatValue(int index, float defaultValue) {
+    String value = values[index];
+    if (value != null) {
+      try {
+        return Float.parseFloat(value);
+      } catch (NumberFormatException ignored) {
+      }
+    }
+    return defaultValue;
+  }
+
+  @Override public String getIdAttribute() {
+    return idAttribute;
+  }
+
+  @Override public String getClassAttribute() {
+    return classAttribute;
+  }
+
+  @Override public int getIdAttributeResourceValue(int defaultValue) {
+    return idResourceValue != 0 ? idResourceValue : defaultValue;
+  }
+
+  @Override public int getStyleAttribute() {
+    return styleAttribute;
+  }
+
+  private int indexOf(String namespace, String name) {
+    for (int i = 0; i < names.length; i++) {
+      if (name.equals(names[i]) && (namespace == null || namespaces[i] == null || namespace.equals(namespaces[i]))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parse an int the way XmlUtils.convertValueToInt does: decimal, hex with "0x" or "#" and octal with a leading '0'.
+   */
+  private static int parseInt(String value, int defaultValue) {
+    int length = value.length();
+    if (length == 0) {
+      return defaultValue;
+    }
+    int sign = 1;
+    int index = 0;
+    int base = 10;
+    if (value.charAt(0) == '-') {
+      sign = -1;
+      index++;
+    }
+    if (value.startsWith("0x", index) || value.startsWith("0X", index)) {
+      index += 2;
+      base = 16;
+    } else if (value.startsWith("#", index)) {
+      index++;
+      base = 16;
+    } else if (value.startsWith("0", index) && length > index + 1) {
+      index++;
+      base = 8;
+    }
+    try {
+      return (int) Long.parseLong(value.substring(index), base) * sign;
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * The part of a snapshot that is shared by tags with identical attributes.
+   */
+  private static final class Values {
+
+    final String[] namespaces;
+    final String[] names;
+    final String[] values;
+    final int[] nameResources;
+    final int[] resourceValues;
+    final String idAttribute;
+    final String classAttribute;
+    final int idResourceValue;
+    final int styleAttribute;
+    final int hash;
+
+    Values(AttributeSet attrs) {
+      int count = attrs.getAttributeCount();
+      XmlPullParser parser = attrs instanceof XmlPullParser ? (XmlPullParser) attrs : null;
+      namespaces = new String[count];
+      names = new String[count];
+      values = new String[count];
+      nameResources = new int[count];
+      resourceValues = new int[count];
+      for (int i = 0; i < count; i++) {
+        namespaces[i] = parser != null ? intern(parser.getAttributeNamespace(i)) : null;
+        names[i] = intern(attrs.getAttributeName(i));
+        values[i] = intern(attrs.getAttributeValue(i));
+        nameResources[i] = attrs.getAttributeNameResource(i);
+        resourceValues[i] = attrs.getAttributeResourceValue(i, 0);
+      }
+      idAttribute = intern(attrs.getIdAttribute());
+      classAttribute = intern(attrs.getClassAttribute());
+      idResourceValue = attrs.getIdAttributeResourceValue(0);
+      styleAttribute = attrs.getStyleAttribute();
+
+      int h = Arrays.hashCode(nameResources);
+      h = 31 * h + Arrays.hashCode(resourceValues);
+      h = 31 * h + Arrays.hashCode(names);
+      h = 31 * h + Arrays.hashCode(values);
+      h = 31 * h + styleAttribute;
+      hash = h;
+    }
+
+    @Override public int hashCode() {
+      return hash;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Values)) {
+        return false;
+      }
+      Values other = (Values) o;
+      return hash == other.hash
+          && idResourceValue == other.idResourceValue
+          && styleAttribute == other.styleAttribute
+          && Arrays.equals(nameResources, other.nameResources)
+          && Arrays.equals(resourceValues, other.resourceValues)
+          && Arrays.equals(names, other.names)
+          && Arrays.equals(values, other.values)
+          && Arrays.equals(namespaces, other.namespaces)
+          && equal(idAttribute, other.idAttribute)
+          && equal(classAttribute, other.classAttribute);
+    }
+
+    private static boolean equal(String a, String b) {
+      return a == null ? b == null : a.equals(b);
+    }
+
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded, thread-safe cache from fully qualified class name to the {@code (Context, AttributeSet)} constructor used
+ * to inflate that view.
+ */
+final class ConstructorCache {
+
+  private static final Class<?>[] CONSTRUCTOR_SIGNATURE = {Context.class, AttributeSet.class};
+  private static final ClassLoader BOOT_CLASS_LOADER = LayoutInflater.class.getClassLoader();
+  private static final int MAX_SIZE = 256;
+
+  private static final ConcurrentHashMap<String, Constructor<? extends View>> CACHE = new ConcurrentHashMap<>();
+
+  /**
+   * Get the inflation constructor for a view class, loading and caching it if needed.
+   *
+   * @param name
+   *     The fully qualified class name of the view
+   * @param classLoader
+   *     The class loader of the context the view is inflated in
+   * @return The constructor taking a {@link Context} and an {@link AttributeSet}.
+   * @throws ClassNotFoundException
+   *     if the class could not be found
+   * @throws NoSuchMethodException
+   *     if the class has no {@code (Context, AttributeSet)} constructor
+   */
+  static Constructor<? extends View> get(String name, ClassLoader classLoader)
+      throws ClassNotFoundException, NoSuchMethodException {
+    Constructor<? extends View> constructor = CACHE.get(name);
+    if (constructor != null && isVisibleTo(constructor, classLoader)) {
+      return constructor;
+    }
+    Class<? extends View> clazz = classLoader.loadClass(name).asSubclass(View.class);
+    constructor = clazz.getConstructor(CONSTRUCTOR_SIGNATURE);
+    constructor.setAccessible(true);
+    if (CACHE.size() >= MAX_SIZE) {
+      CACHE.clear();
+    }
+    CACHE.put(name, constructor);
+    return constructor;
+  }
+
+  /**
+   * Get the inflation constructor for a view class that is already loaded, caching it if needed.
+   *
+   * @param clazz
+   *     The view class
+   * @return The constructor taking a {@link Context} and an {@link AttributeSet}.
+   * @throws NoSuchMethodException
+   *     if the class has no {@code (Context, AttributeSet)} constructor
+   */
+  static Constructor<? extends View> get(Class<? extends View> clazz) throws NoSuchMethodException {
+    String name = clazz.getName();
+    Constructor<? extends View> constructor = CACHE.get(name);
+    if (constructor != null && constructor.getDeclaringClass() == clazz) {
+      return constructor;
+    }
+    constructor = clazz.getConstructor(CONSTRUCTOR_SIGNATURE);
+    constructor.setAccessible(true);
+    if (CACHE.size() >= MAX_SIZE) {
+      CACHE.clear();
+    }
+    CACHE.put(name, constructor);
+    return constructor;
+  }
+
+  /**
+   * A cached constructor may have been loaded by another class loader, for example after a split APK was installed.
+   * Only reuse it if the class loader of the inflating context can see it.
+   */
+  private static boolean isVisibleTo(Constructor<? extends View> constructor, ClassLoader classLoader) {
+    ClassLoader constructorLoader = constructor.getDeclaringClass().getClassLoader();
+    if (constructorLoader == BOOT_CLASS_LOADER) {
+      return true;
+    }
+    for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+      if (cl == constructorLoader) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ConstructorCache() {
+    throw new AssertionError("no instances");
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.ScheduledDecorator;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link ScheduledDecorator}s on the main thread after inflation. Decorations scheduled before draw are all
+ * applied at the start of the next frame. Idle decorations are applied while the main thread is idle, at most
+ * {@link #IDLE_BUDGET_NANOS} per frame. All state is confined to the main thread.
+ */
+final class DecorationScheduler {
+
+  /** Time spent applying idle decorations before yielding to the next frame. */
+  static final long IDLE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+  private static final ArrayDeque<Runnable> BEFORE_DRAW = new ArrayDeque<>();
+  private static final ArrayDeque<Runnable> IDLE = new ArrayDeque<>();
+
+  private static Handler handler;
+  private static boolean frameScheduled;
+  private static boolean idleScheduled;
+
+  /**
+   * Schedule a decorator for a view that is being inflated.
+   *
+   * @return {@code false} if the caller isn't on the main thread and should apply the decorator now.
+   */
+  static boolean schedule(Decorator decorator, View view, AttributeSet attrs,
+                          @ScheduledDecorator.Schedule int schedule) {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      return false;
+    }
+    Runnable work = DeferredDecorations.prepare(decorator, view, attrs);
+    if (work != null) {
+      enqueue(schedule, work);
+    }
+    return true;
+  }
+
+  /**
+   * Queue prepared work. Must be called on the main thread.
+   */
+  static void enqueue(@ScheduledDecorator.Schedule int schedule, Runnable work) {
+    if (schedule == ScheduledDecorator.SCHEDULE_IDLE) {
+      IDLE.add(work);
+      if (!idleScheduled) {
+        idleScheduled = true;
+        Looper.myQueue().addIdleHandler(IdleDrain.INSTANCE);
+      }
+    } else {
+      BEFORE_DRAW.add(work);
+      if (!frameScheduled) {
+        frameScheduled = true;
+        postFrame(FrameDrain.INSTANCE);
+      }
+    }
+  }
+
+  static void drainBeforeDraw() {
+    frameScheduled = false;
+    Runnable work;
+    while ((work = BEFORE_DRAW.poll()) != null) {
+      work.run();
+    }
+  }
+
+  /**
+   * @return {@code true} if idle work is left.
+   */
+  static boolean drainIdle() {
+    long deadline = System.nanoTime() + IDLE_BUDGET_NANOS;
+    Runnable work;
+    while ((work = IDLE.poll()) != null) {
+      work.run();
+      if (System.nanoTime() >= deadline) {
+        break;
+      }
+    }
+    if (IDLE.isEmpty()) {
+      idleScheduled = false;
+      return false;
+    }
+    // The idle handler only runs again after another message, so wake the looper after the next frame.
+    postFrame(Wakeup.INSTANCE);
+    return true;
+  }
+
+  private static void postFrame(final Runnable runnable) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+
+        @Override public void doFrame(long frameTimeNanos) {
+          runnable.run();
+        }
+
+      });
+    } else {
+      if (handler == null) {
+        handler = new Handler(Looper.getMainLooper());
+      }
+      handler.post(runnable);
+    }
+  }
+
+  private enum FrameDrain implements Runnable {
+    INSTANCE;
+
+    @Override public void run() {
+      drainBeforeDraw();
+    }
+  }
+
+  private enum IdleDrain implements MessageQueue.IdleHandler {
+    INSTANCE;
+
+    @Override public boolean queueIdle() {
+      return drainIdle();
+    }
+  }
+
+  private enum Wakeup implements Runnable {
+    INSTANCE;
+
+    @Override public void run() {
+    }
+  }
+
+  private DecorationScheduler() {
+    throw new AssertionError("no instances");
+  }
+
+}
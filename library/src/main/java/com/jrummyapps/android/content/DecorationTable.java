@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p>A table generated at build time of the tags in the app's layouts that declare a decorated attribute. Tags are
+ * identified by their layout resource and the line their start tag is on. When a table is set, attribute decorators
+ * that only look at declared attributes (see {@link com.jrummyapps.android.content.decor.AttrsDecorator#isCoveredBy(
+ * int[])}) are skipped for every other tag without touching its attributes.</p>
+ *
+ * <p>The table is generated by {@code gradle/decoration-table.gradle}:</p>
+ *
+ * <pre>
+ * apply from: "$rootDir/gradle/decoration-table.gradle"
+ *
+ * decorationTable {
+ *   attributes = ['decorTypefaceAsset', 'android:fontFamily']
+ * }
+ * </pre>
+ *
+ * <p>and set with {@code ObservableContextWrapper.wrap(context).setDecorationTable(GeneratedDecorationTable.create())}.
+ * Layouts that are not in the table, like those from libraries or views created from code, are decorated as
+ * usual.</p>
+ *
+ * <p>A line is listed if any start tag on it declares an attribute, and the lines of all files of a layout
+ * (layout-land, flavors) are merged. A tag that shares a line with a decorated tag, in the same file or in another
+ * file of the layout, is therefore decorated too. The table may decorate a tag that declares nothing, but never skips
+ * one that declares an attribute.</p>
+ */
+public final class DecorationTable {
+
+  private final int[] attributes;
+  private final int[] layouts;
+  private final int[][] lines;
+
+  DecorationTable(int[] attributes, int[] layouts, int[][] lines) {
+    this.attributes = attributes;
+    this.layouts = layouts;
+    this.lines = lines;
+  }
+
+  /**
+   * @return The sorted attribute resource IDs the layouts were scanned for.
+   */
+  @NonNull int[] attributes() {
+    return attributes;
+  }
+
+  /**
+   * Check whether a tag may declare one of the scanned attributes.
+   *
+   * @param layout
+   *     The layout resource being inflated.
+   * @param line
+   *     The line number of the tag's start tag.
+   * @return {@code false} only if the layout was scanned and no tag on the line declares one of the attributes in any
+   * of the layout's files.
+   */
+  boolean isDecorated(int layout, int line) {
+    int index = Arrays.binarySearch(layouts, layout);
+    return index < 0 || Arrays.binarySearch(lines[index], line) >= 0;
+  }
+
+  /**
+   * Builds a {@link DecorationTable}. Used by the generated code.
+   */
+  public static final class Builder {
+
+    private final int[] attributes;
+    private int[] layouts = new int[16];
+    private int[][] lines = new int[16][];
+    private int size;
+
+    /**
+     * @param attributes
+     *     The attribute resource IDs the layouts were scanned for.
+     */
+    public Builder(@NonNull int... attributes) {
+      this.attributes = attributes.clone();
+      Arrays.sort(this.attributes);
+    }
+
+    /**
+     * Add a scanned layout.
+     *
+     * @param layout
+     *     The layout resource.
+     * @param lines
+     *     The line numbers of the start tags that declare one of the attributes. May be empty.
+     * @return This object for chaining method calls
+     */
+    public Builder add(@LayoutRes int layout, @NonNull int... lines) {
+      if (size == layouts.length) {
+        layouts = Arrays.copyOf(layouts, size * 2);
+        this.lines = Arrays.copyOf(this.lines, size * 2);
+      }
+      int[] sorted = lines.clone();
+      Arrays.sort(sorted);
+      layouts[size] = layout;
+      this.lines[size] = sorted;
+      size++;
+      return this;
+    }
+
+    /**
+     * @return The table.
+     */
+    @NonNull public DecorationTable build() {
+      // Sort the layouts, merging entries for the same layout (e.g. from layout-land) into one.
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+
+        @Override public int compare(Integer a, Integer b) {
+          int x = layouts[a];
+          int y = layouts[b];
+          return x < y ? -1 : (x == y ? 0 : 1);
+        }
+
+      });
+      int[] sortedLayouts = new int[size];
+      int[][] sortedLines = new int[size][];
+      int count = 0;
+      for (Integer i : order) {
+        if (count > 0 && sortedLayouts[count - 1] == layouts[i]) {
+          sortedLines[count - 1] = union(sortedLines[count - 1], lines[i]);
+        } else {
+          sortedLayouts[count] = layouts[i];
+          sortedLines[count] = lines[i];
+          count++;
+        }
+      }
+      return new DecorationTable(attributes, Arrays.copyOf(sortedLayouts, count), Arrays.copyOf(sortedLines, count));
+    }
+
+    private static int[] union(int[] a, int[] b) {
+      int[] merged = Arrays.copyOf(a, a.length + b.length);
+      System.arraycopy(b, 0, merged, a.length, b.length);
+      Arrays.sort(merged);
+      return merged;
+    }
+
+  }
+
+}
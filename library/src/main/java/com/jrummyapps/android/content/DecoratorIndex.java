@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.CompositeAttrsDecorator;
+import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.MainThreadDecorator;
+import com.jrummyapps.android.content.decor.ScheduledDecorator;
+import com.jrummyapps.android.content.decor.TargetedDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps a concrete view class to the decorators that apply to it. Entries are resolved lazily the first time a view
+ * class is seen and are shared by an inflater and all of its clones. Mergeable attribute decorators are combined per
+ * class with {@link CompositeAttrsDecorator#merge(Decorator[])}.
+ */
+final class DecoratorIndex {
+
+  private static final Decorator[] NONE = new Decorator[0];
+
+  private final ConcurrentHashMap<Class<?>, Entry> index = new ConcurrentHashMap<>();
+  private final Decorator[] decorators;
+  private final int[] tableAttributes;
+  private final boolean hasDeferredDecorators;
+
+  DecoratorIndex(Decorator[] decorators) {
+    this(decorators, null);
+  }
+
+  /**
+   * @param decorators
+   *     The registered decorators.
+   * @param tableAttributes
+   *     The sorted attributes of a {@link DecorationTable}, or {@code null} if there is no table.
+   */
+  DecoratorIndex(Decorator[] decorators, int[] tableAttributes) {
+    this.decorators = decorators;
+    this.tableAttributes = tableAttributes;
+    boolean deferred = false;
+    for (Decorator decorator : decorators) {
+      deferred |= decorator instanceof MainThreadDecorator || decorator instanceof ScheduledDecorator;
+    }
+    this.hasDeferredDecorators = deferred;
+  }
+
+  /**
+   * @return A copy of the decorators, in the order they were registered.
+   */
+  Decorator[] decorators() {
+    return decorators.clone();
+  }
+
+  /**
+   * @return {@code true} if one of the decorators is a {@link MainThreadDecorator} or a {@link ScheduledDecorator}.
+   */
+  boolean hasDeferredDecorators() {
+    return hasDeferredDecorators;
+  }
+
+  /**
+   * Get the decorators that apply to the given view class, in the order they were registered.
+   *
+   * @param clazz
+   *     The concrete class of the view being decorated
+   * @return The decorators that apply to the view. Never null.
+   */
+  Decorator[] get(Class<?> clazz) {
+    return entry(clazz).all;
+  }
+
+  /**
+   * Get the decorators that apply to the given view class for a tag that the {@link DecorationTable} says declares
+   * none of its attributes. Decorators that only look at those attributes are left out.
+   *
+   * @param clazz
+   *     The concrete class of the view being decorated
+   * @return The decorators that apply to the view. Never null.
+   */
+  Decorator[] getUndeclared(Class<?> clazz) {
+    return entry(clazz).undeclared;
+  }
+
+  private Entry entry(Class<?> clazz) {
+    Entry entry = index.get(clazz);
+    if (entry == null) {
+      entry = resolve(clazz);
+      Entry existing = index.putIfAbsent(clazz, entry);
+      if (existing != null) {
+        entry = existing;
+      }
+    }
+    return entry;
+  }
+
+  private Entry resolve(Class<?> clazz) {
+    List<Decorator> matches = new ArrayList<>(decorators.length);
+    for (Decorator decorator : decorators) {
+      if (decorator != null && appliesTo(decorator, clazz)) {
+        matches.add(decorator);
+      }
+    }
+    if (matches.isEmpty()) {
+      return new Entry(NONE, NONE);
+    }
+    Decorator[] all = CompositeAttrsDecorator.merge(matches.toArray(new Decorator[matches.size()]));
+    if (tableAttributes == null) {
+      return new Entry(all, all);
+    }
+    List<Decorator> undeclared = new ArrayList<>(all.length);
+    for (Decorator decorator : all) {
+      if (!isCoveredByTable(decorator)) {
+        undeclared.add(decorator);
+      }
+    }
+    return new Entry(all, undeclared.size() == all.length ? all : undeclared.toArray(new Decorator[undeclared.size()]));
+  }
+
+  private boolean isCoveredByTable(Decorator decorator) {
+    if (decorator instanceof AttrsDecorator) {
+      return ((AttrsDecorator<?>) decorator).isCoveredBy(tableAttributes);
+    }
+    if (decorator instanceof CompositeAttrsDecorator) {
+      return ((CompositeAttrsDecorator) decorator).isCoveredBy(tableAttributes);
+    }
+    return false;
+  }
+
+  private static final class Entry {
+
+    final Decorator[] all;
+    final Decorator[] undeclared;
+
+    Entry(Decorator[] all, Decorator[] undeclared) {
+      this.all = all;
+      this.undeclared = undeclared;
+    }
+
+  }
+
+  private static boolean appliesTo(Decorator decorator, Class<?> clazz) {
+    if (!(decorator instanceof TargetedDecorator)) {
+      return true;
+    }
+    for (Class<?> type : ((TargetedDecorator) decorator).targetTypes()) {
+      if (type.isAssignableFrom(clazz)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
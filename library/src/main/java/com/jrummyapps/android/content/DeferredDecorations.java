@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.DeferrableDecorator;
+import com.jrummyapps.android.content.decor.ScheduledDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects decorations that can't run on the inflating thread. While a thread is collecting, the inflater hands
+ * {@link com.jrummyapps.android.content.decor.MainThreadDecorator}s and {@link ScheduledDecorator}s to
+ * {@link #defer(Decorator, View, AttributeSet, int)} instead of applying them.
+ */
+final class DeferredDecorations {
+
+  private static final ThreadLocal<List<Runnable>> PENDING = new ThreadLocal<>();
+
+  /**
+   * Start collecting deferred decorations on the calling thread.
+   */
+  static void begin() {
+    PENDING.set(new ArrayList<Runnable>());
+  }
+
+  /**
+   * Stop collecting on the calling thread.
+   *
+   * @return The decorations collected since {@link #begin()}, in the order they were deferred.
+   */
+  static List<Runnable> end() {
+    List<Runnable> pending = PENDING.get();
+    PENDING.remove();
+    return pending;
+  }
+
+  /**
+   * @return {@code true} if the calling thread is collecting deferred decorations.
+   */
+  static boolean isCollecting() {
+    return PENDING.get() != null;
+  }
+
+  /**
+   * Defer a decorator until the inflated view is delivered on the main thread. {@link ScheduledDecorator}s are then
+   * handed to the {@link DecorationScheduler} with the given schedule.
+   */
+  static void defer(Decorator decorator, View view, AttributeSet attrs, @ScheduledDecorator.Schedule final int schedule) {
+    final Runnable work = prepare(decorator, view, attrs);
+    if (work == null) {
+      return;
+    }
+    if (schedule == ScheduledDecorator.SCHEDULE_IMMEDIATE) {
+      PENDING.get().add(work);
+    } else {
+      PENDING.get().add(new Runnable() {
+
+        @Override public void run() {
+          DecorationScheduler.enqueue(schedule, work);
+        }
+
+      });
+    }
+  }
+
+  /**
+   * Prepare a decorator to be applied later. Only {@link com.jrummyapps.android.content.decor.MainThreadDecorator}s
+   * and {@link ScheduledDecorator}s are deferred, and both are {@link DeferrableDecorator}s that read what they need
+   * from the attributes now.
+   *
+   * @return The work to run later, or {@code null} if there is nothing to do.
+   */
+  static Runnable prepare(Decorator decorator, View view, AttributeSet attrs) {
+    return ((DeferrableDecorator) decorator).prepare(view, attrs);
+  }
+
+  private DeferredDecorations() {
+    throw new AssertionError("no instances");
+  }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.CompositeAttrsDecorator;
+import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.TreeDecorator;
+
+/**
+ * <p>The immutable configuration of an {@link ObservableLayoutInflater}: the decorators, tree decorators, view
+ * factory, precompiled factory, inflation monitor, inflation tracer, decoration table, view substitutions, lazy
+ * inflation setting, layout replay cache and view id index setting, plus the decorator lookup table derived from
+ * them. An inflater and all of its clones share one instance, and one instance can be shared by any number of
+ * {@link ObservableContextWrapper}s.</p>
+ *
+ * <pre>
+ * InflationConfig config = ObservableContextWrapper.wrap(context).setDecorators(decorators).buildConfig();
+ * Context dialogContext = ObservableContextWrapper.wrap(themedContext, config);
+ * </pre>
+ */
+public final class InflationConfig {
+
+  static final InflationConfig EMPTY = new Builder().build();
+
+  final ObservableViewFactory viewFactory;
+  final DecoratorIndex decoratorIndex;
+  final LayoutInflater.Factory2 precompiledFactory;
+  final InflationMonitor monitor;
+  final DecorationTable decorationTable;
+  final TreeDecorator[] treeDecorators;
+  final InflationTracer tracer;
+  final ViewSubstitutions substitutions;
+  final boolean lazyInflation;
+  final LayoutReplayCache replayCache;
+  final boolean viewIdIndex;
+  /** {@code true} if a monitor or tracer is set, so the uninstrumented path checks a single flag. */
+  final boolean instrumented;
+  /** Records the members of a {@link CompositeAttrsDecorator}, or {@code null} if not {@link #instrumented}. */
+  final CompositeAttrsDecorator.MemberTimer memberTimer;
+
+  private InflationConfig(Builder builder) {
+    this.viewFactory = builder.viewFactory;
+    if (builder.decoratorIndex != null) {
+      this.decoratorIndex = builder.decoratorIndex;
+    } else if (builder.decorators == null || builder.decorators.length == 0) {
+      this.decoratorIndex = null;
+    } else {
+      DecorationTable table = builder.decorationTable;
+      this.decoratorIndex = new DecoratorIndex(builder.decorators.clone(), table != null ? table.attributes() : null);
+    }
+    this.precompiledFactory = builder.precompiledFactory;
+    this.monitor = builder.monitor;
+    this.decorationTable = builder.decorationTable;
+    this.treeDecorators = builder.treeDecorators == null || builder.treeDecorators.length == 0 ? null
+        : builder.treeDecorators.clone();
+    this.tracer = builder.tracer;
+    this.substitutions = builder.substitutions;
+    this.lazyInflation = builder.lazyInflation;
+    this.replayCache = builder.replayCache;
+    this.viewIdIndex = builder.viewIdIndex;
+    this.instrumented = monitor != null || tracer != null;
+    this.memberTimer = instrumented ? new DecoratorTimer(monitor, tracer) : null;
+  }
+
+  /**
+   * @return A builder with this configuration's values, used to create a modified copy.
+   */
+  Builder buildUpon() {
+    return new Builder(this);
+  }
+
+  /**
+   * @return The callback invoked when a view is created, or {@code null}.
+   */
+  @Nullable public ObservableViewFactory getViewFactory() {
+    return viewFactory;
+  }
+
+  /**
+   * @return A copy of the decorators, in the order they were registered.
+   */
+  @NonNull public Decorator[] getDecorators() {
+    return decoratorIndex == null ? new Decorator[0] : decoratorIndex.decorators();
+  }
+
+  /**
+   * @return The factory tried before views are created through reflection, or {@code null}.
+   * @see ObservableLayoutInflater#setPrecompiledFactory(LayoutInflater.Factory2)
+   */
+  @Nullable public LayoutInflater.Factory2 getPrecompiledFactory() {
+    return precompiledFactory;
+  }
+
+  /**
+   * @return The monitor inflation timings are recorded to, or {@code null}.
+   */
+  @Nullable public InflationMonitor getInflationMonitor() {
+    return monitor;
+  }
+
+  /**
+   * @return The tracer inflation events are recorded to, or {@code null}.
+   */
+  @Nullable public InflationTracer getInflationTracer() {
+    return tracer;
+  }
+
+  /**
+   * @return The views created in place of the views named in a layout, or {@code null}.
+   */
+  @Nullable public ViewSubstitutions getViewSubstitutions() {
+    return substitutions;
+  }
+
+  /**
+   * @return {@code true} if tags with {@code app:inflateLazily="true"} are inflated lazily.
+   * @see LazyPlaceholder
+   */
+  public boolean isLazyInflationEnabled() {
+    return lazyInflation;
+  }
+
+  /**
+   * @return The cache of decorator decisions made for the tags of recently inflated layouts, or {@code null}.
+   */
+  @Nullable public LayoutReplayCache getLayoutReplayCache() {
+    return replayCache;
+  }
+
+  /**
+   * @return {@code true} if a {@link ViewIdIndex} is built for every inflated layout.
+   */
+  public boolean isViewIdIndexEnabled() {
+    return viewIdIndex;
+  }
+
+  /**
+   * @return A copy of the tree decorators, in the order they were registered.
+   */
+  @NonNull public TreeDecorator[] getTreeDecorators() {
+    return treeDecorators == null ? new TreeDecorator[0] : treeDecorators.clone();
+  }
+
+  /**
+   * @return The build-time table of decorated tags, or {@code null}.
+   */
+  @Nullable public DecorationTable getDecorationTable() {
+    return decorationTable;
+  }
+
+  /**
+   * Collects the parts of an {@link InflationConfig}. The decorator lookup table of the configuration a builder was
+   * created from is reused unless the decorators or the decoration table change.
+   */
+  static final class Builder {
+
+    ObservableViewFactory viewFactory;
+    Decorator[] decorators;
+    DecoratorIndex decoratorIndex;
+    LayoutInflater.Factory2 precompiledFactory;
+    InflationMonitor monitor;
+    DecorationTable decorationTable;
+    TreeDecorator[] treeDecorators;
+    InflationTracer tracer;
+    ViewSubstitutions substitutions;
+    boolean lazyInflation;
+    LayoutReplayCache replayCache;
+    boolean viewIdIndex;
+
+    Builder() {
+    }
+
+    Builder(InflationConfig config) {
+      this.viewFactory = config.viewFactory;
+      this.decoratorIndex = config.decoratorIndex;
+      this.decorators = config.decoratorIndex != null ? config.decoratorIndex.decorators() : null;
+      this.precompiledFactory = config.precompiledFactory;
+      this.monitor = config.monitor;
+      this.decorationTable = config.decorationTable;
+      this.treeDecorators = config.treeDecorators;
+      this.tracer = config.tracer;
+      this.substitutions = config.substitutions;
+      this.lazyInflation = config.lazyInflation;
+      this.replayCache = config.replayCache;
+      this.viewIdIndex = config.viewIdIndex;
+    }
+
+    Builder setViewFactory(ObservableViewFactory viewFactory) {
+      this.viewFactory = viewFactory;
+      return this;
+    }
+
+    Builder setDecorators(Decorator[] decorators) {
+      this.decorators = decorators;
+      this.decoratorIndex = null;
+      return this;
+    }
+
+    Builder setPrecompiledFactory(LayoutInflater.Factory2 precompiledFactory) {
+      this.precompiledFactory = precompiledFactory;
+      return this;
+    }
+
+    Builder setInflationMonitor(InflationMonitor monitor) {
+      this.monitor = monitor;
+      return this;
+    }
+
+    Builder setDecorationTable(DecorationTable decorationTable) {
+      this.decorationTable = decorationTable;
+      this.decoratorIndex = null;
+      return this;
+    }
+
+    Builder setTreeDecorators(TreeDecorator[] treeDecorators) {
+      this.treeDecorators = treeDecorators;
+      return this;
+    }
+
+    Builder setInflationTracer(InflationTracer tracer) {
+      this.tracer = tracer;
+      return this;
+    }
+
+    Builder setViewSubstitutions(ViewSubstitutions substitutions) {
+      this.substitutions = substitutions;
+      return this;
+    }
+
+    Builder setLazyInflation(boolean lazyInflation) {
+      this.lazyInflation = lazyInflation;
+      return this;
+    }
+
+    Builder setLayoutReplayCache(LayoutReplayCache replayCache) {
+      this.replayCache = replayCache;
+      return this;
+    }
+
+    Builder setViewIdIndex(boolean viewIdIndex) {
+      this.viewIdIndex = viewIdIndex;
+      return this;
+    }
+
+    InflationConfig build() {
+      return new InflationConfig(this);
+    }
+
+  }
+
+  /**
+   * Records the members of a {@link CompositeAttrsDecorator} like decorators that were not merged.
+   */
+  static final class DecoratorTimer implements CompositeAttrsDecorator.MemberTimer {
+
+    private final InflationMonitor monitor;
+    private final InflationTracer tracer;
+
+    DecoratorTimer(InflationMonitor monitor, InflationTracer tracer) {
+      this.monitor = monitor;
+      this.tracer = tracer;
+    }
+
+    @Override public void onMemberApplied(@NonNull AttrsDecorator<?> member, @NonNull View view, long start,
+        long nanos) {
+      if (monitor != null) {
+        monitor.recordDecorator(member, nanos);
+      }
+      if (tracer != null) {
+        tracer.recordDecorator(member, view.getClass(), start, nanos);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.Decorator;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout a thread is currently inflating with {@link ObservableLayoutInflater#inflate(int,
+ * android.view.ViewGroup, boolean)}, if requested the views created so far in pre-order, and the lazily inflated tag
+ * whose subtree is being skipped. Frames nest when a view inflates its own layout while it is being created.
+ */
+final class InflationFrame {
+
+  private static final ThreadLocal<InflationFrame> CURRENT = new ThreadLocal<>();
+
+  final int layout;
+  final XmlPullParser parser;
+  final List<View> views;
+  /** The parser depth of the tag that is the root of this inflation. Lazy tags at this depth are inflated. */
+  final int rootDepth;
+  /** The parser depth of the lazy tag whose subtree is being skipped, or 0. */
+  int lazyDepth;
+  /** Created in place of the tags below a lazy tag. */
+  LazyPlaceholder.Sink sink;
+  /** The tags of the layout recorded in the {@link LayoutReplayCache}, or {@code null}. */
+  LayoutReplayCache.Layout replay;
+  /** The line of the last tag looked up in {@link #replay}, to find lines with more than one tag. */
+  private int replayLine = -1;
+  /** The line of the last tag passed to {@link #nextOrdinal()} and its ordinal on that line. */
+  private int tagLine = -1;
+  private int tagOrdinal = -1;
+  private final InflationFrame parent;
+
+  private InflationFrame(int layout, XmlPullParser parser, boolean recordViews, int rootDepth,
+                         InflationFrame parent) {
+    this.layout = layout;
+    this.parser = parser;
+    this.views = recordViews ? new ArrayList<View>() : null;
+    this.rootDepth = rootDepth;
+    this.parent = parent;
+  }
+
+  /**
+   * Start inflating a layout on the calling thread.
+   *
+   * @param recordViews
+   *     {@code true} to keep the views passed to {@link #record(View)}.
+   * @param rootDepth
+   *     The depth of the tag the inflation starts at, 1 for a whole layout.
+   * @return The new frame, to be passed to {@link #pop(InflationFrame)}.
+   */
+  static InflationFrame push(int layout, XmlPullParser parser, boolean recordViews, int rootDepth) {
+    InflationFrame frame = new InflationFrame(layout, parser, recordViews, rootDepth, CURRENT.get());
+    CURRENT.set(frame);
+    return frame;
+  }
+
+  /**
+   * @return The frame of the layout the calling thread is inflating, or {@code null}.
+   */
+  static InflationFrame current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Finish inflating the layout of the frame and return to the enclosing one.
+   */
+  static void pop(InflationFrame frame) {
+    if (frame.parent == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(frame.parent);
+    }
+  }
+
+  /**
+   * Remember a view created on the calling thread in the current frame. Views of {@code <include>}d layouts are
+   * recorded in the frame of the including layout.
+   */
+  static void record(View view) {
+    InflationFrame frame = CURRENT.get();
+    if (frame != null && frame.views != null) {
+      frame.views.add(view);
+    }
+  }
+
+  /**
+   * Continue an inflation that starts in the middle of a layout: the root tag of the frame is the tag with the given
+   * ordinal on its line.
+   */
+  void startAt(int line, int ordinal) {
+    tagLine = line;
+    tagOrdinal = ordinal - 1;
+  }
+
+  /**
+   * Count a tag of the frame's parser. Must be called for every tag the inflater sees.
+   *
+   * @return The number of tags on the same line before this one, as counted by
+   * {@link LazyPlaceholder#findTag(XmlPullParser, int, int, int)}.
+   */
+  int nextOrdinal() {
+    int line = parser.getLineNumber();
+    if (line != tagLine) {
+      tagLine = line;
+      tagOrdinal = 0;
+    } else {
+      tagOrdinal++;
+    }
+    return tagOrdinal;
+  }
+
+  /**
+   * Check a decoration table for the tag being created.
+   *
+   * @param attrs
+   *     The attributes of the tag.
+   * @return {@code false} only if the tag belongs to the layout of the current frame and the table says it doesn't
+   * declare a decorated attribute. Tags from {@code <include>}d layouts and from other inflaters are always
+   * decorated.
+   */
+  static boolean isDecorated(DecorationTable table, AttributeSet attrs) {
+    InflationFrame frame = CURRENT.get();
+    if (frame == null || frame.parser != attrs) {
+      return true;
+    }
+    return table.isDecorated(frame.layout, frame.parser.getLineNumber());
+  }
+
+  /**
+   * Look up the tag being created in the {@link LayoutReplayCache} of the current frame.
+   *
+   * @param decorators
+   *     The decorators that apply to the view's class.
+   * @return The decorators to apply to the view. Tags from {@code <include>}d layouts and from other inflaters get
+   * {@code decorators} back.
+   */
+  static Decorator[] replay(Decorator[] decorators, View view, AttributeSet attrs) {
+    InflationFrame frame = CURRENT.get();
+    if (frame == null || frame.replay == null || frame.parser != attrs) {
+      return decorators;
+    }
+    int line = frame.parser.getLineNumber();
+    boolean repeated = line == frame.replayLine;
+    frame.replayLine = line;
+    return frame.replay.decorators(line, repeated, view, attrs, decorators);
+  }
+
+}
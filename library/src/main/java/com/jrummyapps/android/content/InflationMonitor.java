@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.support.annotation.NonNull;
+
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.CompositeAttrsDecorator;
+import com.jrummyapps.android.content.decor.Decorator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * <p>Records how long inflation takes. Install it with
+ * {@link ObservableContextWrapper.Builder#setInflationMonitor(InflationMonitor)} to measure:</p>
+ *
+ * <ul>
+ * <li>the wall time of each {@link ObservableLayoutInflater#inflate(int, android.view.ViewGroup, boolean)} call, by
+ * layout resource ID,</li>
+ * <li>the time to create a view, by tag name,</li>
+ * <li>the time spent in each {@link Decorator#apply(android.view.View, android.util.AttributeSet)}. Decorators the
+ * inflater merged into a {@link CompositeAttrsDecorator} are recorded on their own and the composite is recorded as a
+ * whole, including the attribute lookup its members share,</li>
+ * <li>the time spent in {@link ObservableViewFactory#onViewCreated(android.view.View, android.util.AttributeSet)}.</li>
+ * </ul>
+ *
+ * <p>All counters are allocated when the monitor is created and updated without locks, so recording doesn't allocate
+ * or contend. Call {@link #snapshot()} to read the statistics at any time.</p>
+ */
+public final class InflationMonitor {
+
+  /** Key reported for durations whose key didn't fit in a table. */
+  public static final String OVERFLOW = "<overflow>";
+
+  private static final int DEFAULT_CAPACITY = 128;
+
+  final MetricTable layouts;
+  final MetricTable tags;
+  final MetricTable decorators;
+  final MetricTable viewFactory;
+
+  /**
+   * Create a monitor that tracks up to 128 layouts, tags and decorators each.
+   */
+  public InflationMonitor() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a monitor.
+   *
+   * @param capacity
+   *     The number of distinct layouts, tags, decorators and view factory classes tracked individually. Anything above
+   *     is counted in a single {@link #OVERFLOW} entry.
+   */
+  public InflationMonitor(int capacity) {
+    layouts = new MetricTable(capacity);
+    tags = new MetricTable(capacity);
+    decorators = new MetricTable(capacity);
+    viewFactory = new MetricTable(capacity);
+  }
+
+  void recordInflate(int layoutResId, long nanos) {
+    layouts.record(layoutResId, nanos);
+  }
+
+  void recordCreateView(String name, long nanos) {
+    tags.record(name, nanos);
+  }
+
+  void recordDecorator(Decorator decorator, long nanos) {
+    decorators.record(decorator, nanos);
+  }
+
+  void recordViewFactory(ObservableViewFactory factory, long nanos) {
+    // Keyed by class: the factory is usually an Activity, which the table must not hold on to.
+    viewFactory.record(factory.getClass(), nanos);
+  }
+
+  /**
+   * Copy the statistics recorded so far.
+   *
+   * @return An immutable snapshot of the statistics.
+   */
+  @NonNull public Snapshot snapshot() {
+    return new Snapshot(layouts.snapshot(OVERFLOW), tags.snapshot(OVERFLOW), decorators.snapshot(OVERFLOW),
+        viewFactory.snapshot(OVERFLOW));
+  }
+
+  /**
+   * Reset all statistics to zero and forget the recorded keys.
+   */
+  public void reset() {
+    layouts.reset();
+    tags.reset();
+    decorators.reset();
+    viewFactory.reset();
+  }
+
+  /**
+   * @return The class name of a decorator, followed by the class names of its members for a
+   * {@link CompositeAttrsDecorator}.
+   */
+  static String decoratorName(Object decorator) {
+    String name = decorator.getClass().getName();
+    if (!(decorator instanceof CompositeAttrsDecorator)) {
+      return name;
+    }
+    StringBuilder builder = new StringBuilder(name).append('[');
+    AttrsDecorator<?>[] members = ((CompositeAttrsDecorator) decorator).getMembers();
+    for (int i = 0; i < members.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(members[i].getClass().getName());
+    }
+    return builder.append(']').toString();
+  }
+
+  /**
+   * Timing statistics for one layout, tag or decorator.
+   */
+  public static final class Stat {
+
+    private final Object key;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    Stat(Object key, long count, long totalNanos, long maxNanos, long[] histogram) {
+      this.key = key;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.histogram = histogram;
+    }
+
+    /**
+     * @return The layout resource ID as an {@link Integer}, the tag name, the {@link Decorator} or the class of the
+     * {@link ObservableViewFactory}. {@link #OVERFLOW} for the overflow entry.
+     */
+    @NonNull public Object getKey() {
+      return key;
+    }
+
+    /**
+     * @return The number of recorded durations.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return The sum of all recorded durations, in nanoseconds.
+     */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * @return The longest recorded duration, in nanoseconds.
+     */
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * @return The mean duration, in nanoseconds.
+     */
+    public long getMeanNanos() {
+      return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Get the number of durations in a histogram bucket. Bucket 0 counts durations under a microsecond and bucket
+     * {@code i} counts durations from 2<sup>i-1</sup> up to 2<sup>i</sup> microseconds. The last bucket counts
+     * everything above.
+     *
+     * @param bucket
+     *     The bucket, from 0 to {@link #getBucketCount()} - 1
+     * @return The number of durations in the bucket.
+     */
+    public long getBucket(int bucket) {
+      return histogram[bucket];
+    }
+
+    /**
+     * @return The number of histogram buckets.
+     */
+    public int getBucketCount() {
+      return histogram.length;
+    }
+
+    void writeJson(Writer writer) throws IOException {
+      writer.write("{\"key\":");
+      if (key instanceof Integer) {
+        writer.write(String.valueOf(key));
+      } else {
+        String name;
+        if (key instanceof String) {
+          name = (String) key;
+        } else if (key instanceof Class) {
+          name = ((Class<?>) key).getName();
+        } else {
+          name = decoratorName(key);
+        }
+        writer.write('"');
+        writer.write(name.replace("\\", "\\\\").replace("\"", "\\\""));
+        writer.write('"');
+      }
+      writer.write(",\"count\":" + count);
+      writer.write(",\"totalNanos\":" + totalNanos);
+      writer.write(",\"maxNanos\":" + maxNanos);
+      writer.write(",\"histogram\":[");
+      for (int i = 0; i < histogram.length; i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        writer.write(String.valueOf(histogram[i]));
+      }
+      writer.write("]}");
+    }
+
+  }
+
+  /**
+   * The statistics of an {@link InflationMonitor} at a point in time.
+   */
+  public static final class Snapshot {
+
+    private final Stat[] layouts;
+    private final Stat[] tags;
+    private final Stat[] decorators;
+    private final Stat[] viewFactory;
+
+    Snapshot(Stat[] layouts, Stat[] tags, Stat[] decorators, Stat[] viewFactory) {
+      this.layouts = layouts;
+      this.tags = tags;
+      this.decorators = decorators;
+      this.viewFactory = viewFactory;
+    }
+
+    /**
+     * @return Inflation time per layout resource ID.
+     */
+    @NonNull public Stat[] getLayouts() {
+      return layouts.clone();
+    }
+
+    /**
+     * @return View creation time per tag name.
+     */
+    @NonNull public Stat[] getTags() {
+      return tags.clone();
+    }
+
+    /**
+     * @return Time spent per {@link Decorator}.
+     */
+    @NonNull public Stat[] getDecorators() {
+      return decorators.clone();
+    }
+
+    /**
+     * @return Time spent in the {@link ObservableViewFactory}, per factory class.
+     */
+    @NonNull public Stat[] getViewFactory() {
+      return viewFactory.clone();
+    }
+
+    /**
+     * Write the snapshot as JSON. Layouts are keyed by resource ID, decorators and view factories by class name.
+     *
+     * @param writer
+     *     The writer to write to.
+     * @throws IOException
+     *     if writing fails
+     */
+    public void writeJson(@NonNull Writer writer) throws IOException {
+      writer.write('{');
+      writeJson(writer, "layouts", layouts);
+      writer.write(',');
+      writeJson(writer, "tags", tags);
+      writer.write(',');
+      writeJson(writer, "decorators", decorators);
+      writer.write(',');
+      writeJson(writer, "viewFactory", viewFactory);
+      writer.write('}');
+      writer.flush();
+    }
+
+    private static void writeJson(Writer writer, String name, Stat[] stats) throws IOException {
+      writer.write('"');
+      writer.write(name);
+      writer.write("\":[");
+      for (int i = 0; i < stats.length; i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        stats[i].writeJson(writer);
+      }
+      writer.write(']');
+    }
+
+    @Override public String toString() {
+      StringWriter writer = new StringWriter();
+      try {
+        writeJson(writer);
+      } catch (IOException ignored) {
+      }
+      return writer.toString();
+    }
+
+  }
+
+}
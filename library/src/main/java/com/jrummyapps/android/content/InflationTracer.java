@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.res.Resources;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.jrummyapps.android.content.decor.Decorator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Records individual inflation events so they can be lined up with frame timelines. Install it with
+ * {@link ObservableContextWrapper.Builder#setInflationTracer(InflationTracer)} to record:</p>
+ *
+ * <ul>
+ * <li>each {@link ObservableLayoutInflater#inflate(int, android.view.ViewGroup, boolean)} call,</li>
+ * <li>each view creation, with the tag, the view class and the path that created it,</li>
+ * <li>each {@link Decorator#apply(android.view.View, android.util.AttributeSet)} call.</li>
+ * </ul>
+ *
+ * <p>Events go into a ring buffer that is allocated when the tracer is created. Once it is full the oldest events are
+ * overwritten. Recording doesn't allocate or lock. Call {@link #writeJson(Writer, Resources)} to export the buffer in
+ * the Chrome trace event format, which can be opened in {@code chrome://tracing} and the Perfetto UI. Timestamps come
+ * from {@link System#nanoTime()}, the monotonic clock that systrace and Perfetto use, and threads are identified by
+ * their Linux thread ID, so the events can be merged with a system trace of the same process.</p>
+ */
+public final class InflationTracer {
+
+  /** The view was created by the inflater itself, after looking up the package of a short tag name. */
+  static final byte PATH_FRAMEWORK = 0;
+  /** The view was created by a {@link android.view.LayoutInflater.Factory} or {@code Factory2}. */
+  static final byte PATH_FACTORY = 1;
+  /** The view was created by the context's factory, usually the Activity, installed as the private factory. */
+  static final byte PATH_PRIVATE_FACTORY = 2;
+  /** The view was created by the precompiled factory. */
+  static final byte PATH_PRECOMPILED = 3;
+  /** The view was a custom view created through its cached constructor. */
+  static final byte PATH_CUSTOM = 4;
+  /** The view replaced the view named in the layout, see {@link ViewSubstitutions}. */
+  static final byte PATH_SUBSTITUTED = 5;
+
+  private static final String[] PATH_NAMES = {
+      "framework", "factory", "privateFactory", "precompiled", "custom", "substituted"
+  };
+
+  private static final byte KIND_INFLATE = 0;
+  private static final byte KIND_CREATE_VIEW = 1;
+  private static final byte KIND_DECORATOR = 2;
+
+  private static final int DEFAULT_CAPACITY = 16384;
+
+  /** {@link Process#myTid()} is a system call, so each thread looks its ID up once. */
+  private static final ThreadLocal<Integer> THREAD_ID = new ThreadLocal<Integer>() {
+
+    @Override protected Integer initialValue() {
+      return Process.myTid();
+    }
+
+  };
+
+  private final int mask;
+  private final AtomicLong next = new AtomicLong();
+  // The index of the event stored in each slot, or -1 while the slot is being written.
+  private final AtomicLongArray sequence;
+  private final long[] starts;
+  private final long[] durations;
+  private final int[] threads;
+  private final byte[] kinds;
+  private final byte[] paths;
+  private final int[] layouts;
+  private final Object[] names;
+  private final Class<?>[] viewClasses;
+
+  /**
+   * Create a tracer that keeps the last 16384 events.
+   */
+  public InflationTracer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a tracer.
+   *
+   * @param capacity
+   *     The number of events to keep, rounded up to a power of two.
+   */
+  public InflationTracer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    mask = size - 1;
+    sequence = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequence.set(i, -1);
+    }
+    starts = new long[size];
+    durations = new long[size];
+    threads = new int[size];
+    kinds = new byte[size];
+    paths = new byte[size];
+    layouts = new int[size];
+    names = new Object[size];
+    viewClasses = new Class<?>[size];
+  }
+
+  void recordInflate(int layoutResId, long start, long nanos) {
+    record(KIND_INFLATE, start, nanos, layoutResId, null, null, (byte) 0);
+  }
+
+  void recordCreateView(String name, Class<?> viewClass, byte path, long start, long nanos) {
+    record(KIND_CREATE_VIEW, start, nanos, 0, name, viewClass, path);
+  }
+
+  void recordDecorator(Decorator decorator, Class<?> viewClass, long start, long nanos) {
+    record(KIND_DECORATOR, start, nanos, 0, decorator, viewClass, (byte) 0);
+  }
+
+  private void record(byte kind, long start, long nanos, int layout, Object name, Class<?> viewClass, byte path) {
+    long index = next.getAndIncrement();
+    int slot = (int) (index & mask);
+    sequence.set(slot, -1);
+    starts[slot] = start;
+    durations[slot] = nanos;
+    threads[slot] = THREAD_ID.get();
+    kinds[slot] = kind;
+    paths[slot] = path;
+    layouts[slot] = layout;
+    names[slot] = name;
+    viewClasses[slot] = viewClass;
+    sequence.set(slot, index);
+  }
+
+  /**
+   * @return The number of events the ring buffer holds.
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Drop all recorded events.
+   */
+  public void reset() {
+    for (int i = 0; i <= mask; i++) {
+      sequence.set(i, -1);
+      names[i] = null;
+      viewClasses[i] = null;
+    }
+  }
+
+  /**
+   * Write the recorded events to a file in the Chrome trace event format.
+   *
+   * @param file
+   *     The file to write, e.g. {@code new File(context.getExternalFilesDir(null), "inflation.json")}.
+   * @param resources
+   *     Resources used to name layouts, or {@code null} to name them by resource ID.
+   * @throws IOException
+   *     if writing fails
+   */
+  public void writeJson(@NonNull File file, @Nullable Resources resources) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    try {
+      writeJson(writer, resources);
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Write the recorded events in the Chrome trace event format. Each event is a complete ({@code "X"}) event with a
+   * begin timestamp and a duration in microseconds. Events that are overwritten while writing are left out.
+   *
+   * @param writer
+   *     The writer to write to.
+   * @param resources
+   *     Resources used to name layouts, or {@code null} to name them by resource ID.
+   * @throws IOException
+   *     if writing fails
+   */
+  public void writeJson(@NonNull Writer writer, @Nullable Resources resources) throws IOException {
+    int pid = Process.myPid();
+    long end = next.get();
+    long first = Math.max(0, end - (mask + 1));
+    writer.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[");
+    boolean empty = true;
+    for (long index = first; index < end; index++) {
+      int slot = (int) (index & mask);
+      if (sequence.get(slot) != index) {
+        continue;
+      }
+      long start = starts[slot];
+      long nanos = durations[slot];
+      int thread = threads[slot];
+      byte kind = kinds[slot];
+      byte path = paths[slot];
+      int layout = layouts[slot];
+      Object name = names[slot];
+      Class<?> viewClass = viewClasses[slot];
+      // Without load fences the plain reads above may still mix two events even if the sequence didn't change, so
+      // events whose fields don't belong together are dropped.
+      if (sequence.get(slot) != index || !isValid(kind, path, name, viewClass)) {
+        continue;
+      }
+      if (!empty) {
+        writer.write(',');
+      }
+      empty = false;
+      writer.write("{\"ph\":\"X\",\"pid\":" + pid + ",\"tid\":" + thread);
+      writer.write(",\"ts\":" + micros(start) + ",\"dur\":" + micros(nanos));
+      switch (kind) {
+        case KIND_INFLATE:
+          writer.write(",\"cat\":\"inflate\",\"name\":");
+          writeString(writer, "inflate " + layoutName(resources, layout));
+          break;
+        case KIND_CREATE_VIEW:
+          writer.write(",\"cat\":\"createView\",\"name\":");
+          writeString(writer, (String) name);
+          writer.write(",\"args\":{\"class\":");
+          writeString(writer, viewClass.getName());
+          writer.write(",\"path\":");
+          writeString(writer, PATH_NAMES[path]);
+          writer.write('}');
+          break;
+        default:
+          writer.write(",\"cat\":\"decorator\",\"name\":");
+          writeString(writer, InflationMonitor.decoratorName(name));
+          writer.write(",\"args\":{\"class\":");
+          writeString(writer, viewClass.getName());
+          writer.write('}');
+          break;
+      }
+      writer.write('}');
+    }
+    writer.write("]}");
+    writer.flush();
+  }
+
+  private static boolean isValid(byte kind, byte path, Object name, Class<?> viewClass) {
+    switch (kind) {
+      case KIND_INFLATE:
+        return true;
+      case KIND_CREATE_VIEW:
+        return name instanceof String && viewClass != null && path >= 0 && path < PATH_NAMES.length;
+      case KIND_DECORATOR:
+        return name instanceof Decorator && viewClass != null;
+      default:
+        return false;
+    }
+  }
+
+  private static String micros(long nanos) {
+    // Keep nanosecond precision; the trace format takes fractional microseconds.
+    long micros = nanos / 1000;
+    int fraction = (int) (nanos % 1000);
+    if (fraction < 10) {
+      return micros + ".00" + fraction;
+    } else if (fraction < 100) {
+      return micros + ".0" + fraction;
+    }
+    return micros + "." + fraction;
+  }
+
+  private static String layoutName(Resources resources, int layout) {
+    if (resources != null) {
+      try {
+        return resources.getResourceEntryName(layout);
+      } catch (Resources.NotFoundException ignored) {
+      }
+    }
+    return "0x" + Integer.toHexString(layout);
+  }
+
+  private static void writeString(Writer writer, String value) throws IOException {
+    writer.write('"');
+    writer.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+    writer.write('"');
+  }
+
+}
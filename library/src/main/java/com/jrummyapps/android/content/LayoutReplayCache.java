@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import com.jrummyapps.android.content.decor.AttrsDecorator;
+import com.jrummyapps.android.content.decor.CompositeAttrsDecorator;
+import com.jrummyapps.android.content.decor.Decorator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>A bounded cache of the decisions made for each tag the first time a layout is inflated, replayed the next times
+ * the same layout is inflated. For every tag the cache remembers the class of the view that was created and which
+ * decorators were skipped because the tag declares none of their attributes (see
+ * {@link AttrsDecorator#isSkippedFor(View, AttributeSet)}). When the same tag creates a view of the same class again
+ * those decorators are left out without looking at the tag's attributes, like a {@link DecorationTable} that is
+ * learned at runtime for layouts that are not in a table.</p>
+ *
+ * <pre>
+ * LayoutReplayCache cache = new LayoutReplayCache(context, 64);
+ * ObservableContextWrapper.wrap(context).setDecorators(decorators).setLayoutReplayCache(cache).create();
+ * </pre>
+ *
+ * <p>The tags themselves are still read from the compiled layout on every inflation: views take the live parser as
+ * their {@link AttributeSet} and {@code obtainStyledAttributes} only accepts that parser, so a recorded copy of the
+ * attributes could not be handed to constructors. View constructors are already cached by class name.</p>
+ *
+ * <p>Tags are identified by their layout resource and the line their start tag is on. Lines with more than one
+ * decorated start tag (e.g. {@code <FrameLayout><TextView/></FrameLayout>} on one line) are not cached. A layout is
+ * recorded again when its resource resolves to another file, e.g. through a context with another configuration. The
+ * least recently inflated layouts are evicted once {@code maxLayouts} are cached, and the cache is cleared when memory
+ * runs low. One cache may be shared by any number of inflaters and threads. Call {@link #release()} when the cache is
+ * no longer needed.</p>
+ */
+public final class LayoutReplayCache implements ComponentCallbacks2 {
+
+  private static final ThreadLocal<TypedValue> VALUE = new ThreadLocal<TypedValue>() {
+
+    @Override protected TypedValue initialValue() {
+      return new TypedValue();
+    }
+
+  };
+
+  private final Context context;
+  private final LinkedHashMap<Integer, Layout> layouts;
+
+  /**
+   * Create a cache for up to {@code maxLayouts} layouts.
+   *
+   * @param context
+   *     Any context, used to learn about configuration changes.
+   * @param maxLayouts
+   *     The number of layouts to remember.
+   */
+  public LayoutReplayCache(@NonNull Context context, final int maxLayouts) {
+    if (maxLayouts <= 0) {
+      throw new IllegalArgumentException("maxLayouts <= 0");
+    }
+    this.context = context.getApplicationContext();
+    this.layouts = new LinkedHashMap<Integer, Layout>(16, 0.75f, true) {
+
+      @Override protected boolean removeEldestEntry(Map.Entry<Integer, Layout> eldest) {
+        return size() > maxLayouts;
+      }
+
+    };
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      this.context.registerComponentCallbacks(this);
+    }
+  }
+
+  /**
+   * @return The number of layouts currently cached.
+   */
+  public synchronized int size() {
+    return layouts.size();
+  }
+
+  /**
+   * Forget all layouts. They are recorded again the next time they are inflated.
+   */
+  public synchronized void clear() {
+    layouts.clear();
+  }
+
+  /**
+   * Clear the cache and stop listening for configuration changes.
+   */
+  public void release() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      context.unregisterComponentCallbacks(this);
+    }
+    clear();
+  }
+
+  /**
+   * Get the record of a layout, creating an empty one if it isn't cached or was recorded for another file. Called once
+   * per inflation.
+   *
+   * @param resources
+   *     The resources the layout is inflated from.
+   */
+  Layout layout(int layout, Resources resources) {
+    TypedValue value = VALUE.get();
+    resources.getValue(layout, value, true);
+    String file = value.string != null ? value.string.toString() : null;
+    int cookie = value.assetCookie;
+    synchronized (this) {
+      Layout record = layouts.get(layout);
+      if (record == null || record.cookie != cookie || !equal(record.file, file)) {
+        record = new Layout(file, cookie);
+        layouts.put(layout, record);
+      }
+      return record;
+    }
+  }
+
+  @Override public void onTrimMemory(int level) {
+    if (level >= TRIM_MEMORY_RUNNING_LOW) {
+      clear();
+    }
+  }
+
+  @Override public void onConfigurationChanged(Configuration newConfig) {
+    // Most layouts are recorded again for their new files anyway; drop the old records at once.
+    clear();
+  }
+
+  @Override public void onLowMemory() {
+    clear();
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * The tags of one layout file, indexed by line. Read without locking; tags are immutable and the array is replaced
+   * whenever it has to grow.
+   */
+  static final class Layout {
+
+    /** Stored for lines with more than one decorated start tag. */
+    private static final Tag AMBIGUOUS = new Tag(null, null, null);
+
+    final String file;
+    final int cookie;
+    private volatile Tag[] tags = new Tag[0];
+
+    Layout(String file, int cookie) {
+      this.file = file;
+      this.cookie = cookie;
+    }
+
+    /**
+     * Leave out the decorators that were skipped the last time the tag created a view of the same class, or check
+     * them and remember the result.
+     *
+     * @param line
+     *     The line of the tag's start tag.
+     * @param repeated
+     *     {@code true} if a tag on the same line was already looked up during this inflation.
+     * @param decorators
+     *     The decorators that apply to the view's class. The same array is passed for every view of a class.
+     * @return The decorators to apply to the view.
+     */
+    Decorator[] decorators(int line, boolean repeated, View view, AttributeSet attrs, Decorator[] decorators) {
+      if (repeated) {
+        // The tags on this line can't be told apart, so none of them is cached.
+        put(line, AMBIGUOUS);
+        return decorators;
+      }
+      Tag[] tags = this.tags;
+      Tag tag = line < tags.length ? tags[line] : null;
+      if (tag == AMBIGUOUS) {
+        return decorators;
+      }
+      if (tag != null && tag.viewClass == view.getClass() && tag.candidates == decorators) {
+        return tag.decorators;
+      }
+      tag = new Tag(view.getClass(), decorators, withoutSkipped(view, attrs, decorators));
+      put(line, tag);
+      return tag.decorators;
+    }
+
+    private synchronized void put(int line, Tag tag) {
+      Tag[] tags = this.tags;
+      if (line >= tags.length) {
+        tags = Arrays.copyOf(tags, Math.max(line + 1, tags.length * 2));
+      }
+      tags[line] = tag;
+      this.tags = tags;
+    }
+
+    private static Decorator[] withoutSkipped(View view, AttributeSet attrs, Decorator[] decorators) {
+      int skipped = 0;
+      boolean[] skip = new boolean[decorators.length];
+      for (int i = 0; i < decorators.length; i++) {
+        skip[i] = isSkipped(decorators[i], view, attrs);
+        if (skip[i]) {
+          skipped++;
+        }
+      }
+      if (skipped == 0) {
+        return decorators;
+      }
+      Decorator[] kept = new Decorator[decorators.length - skipped];
+      for (int i = 0, n = 0; i < decorators.length; i++) {
+        if (!skip[i]) {
+          kept[n++] = decorators[i];
+        }
+      }
+      return kept;
+    }
+
+    private static boolean isSkipped(Decorator decorator, View view, AttributeSet attrs) {
+      if (decorator instanceof AttrsDecorator) {
+        return ((AttrsDecorator<?>) decorator).isSkippedFor(view, attrs);
+      }
+      if (decorator instanceof CompositeAttrsDecorator) {
+        return ((CompositeAttrsDecorator) decorator).isSkippedFor(view, attrs);
+      }
+      return false;
+    }
+
+  }
+
+  private static final class Tag {
+
+    final Class<?> viewClass;
+    final Decorator[] candidates;
+    final Decorator[] decorators;
+
+    Tag(Class<?> viewClass, Decorator[] candidates, Decorator[] decorators) {
+      this.viewClass = viewClass;
+      this.candidates = candidates;
+      this.decorators = decorators;
+    }
+
+  }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.jrummyapps.observableinflator.R;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+/**
+ * <p>Stands in for a tag with {@code app:inflateLazily="true"} when lazy inflation is enabled with
+ * {@link ObservableContextWrapper.Builder#setLazyInflationEnabled(boolean)}. The tag and its children are not created
+ * or decorated. The placeholder takes the tag's ID and layout parameters and is always {@link View#GONE}, much like a
+ * {@link android.view.ViewStub}:</p>
+ *
+ * <pre>
+ * &lt;LinearLayout
+ *     android:id="@+id/error_panel"
+ *     android:layout_width="match_parent"
+ *     android:layout_height="wrap_content"
+ *     android:visibility="gone"
+ *     app:inflateLazily="true"&gt;
+ *   ...
+ * &lt;/LinearLayout&gt;
+ * </pre>
+ *
+ * <p>The subtree is inflated, with decorators, when the placeholder is made visible or {@link #inflate()} is called,
+ * and the inflated view replaces the placeholder in its parent. If the tag isn't declared {@code gone}, the subtree is
+ * inflated right after the placeholder is attached to a window. Lazy inflation applies to tags below the root of a
+ * layout passed to {@link ObservableLayoutInflater#inflate(int, ViewGroup, boolean)}, not to tags in included
+ * layouts.</p>
+ */
+public final class LazyPlaceholder extends ViewGroup {
+
+  /**
+   * Listener used to receive a notification after the subtree of a {@link LazyPlaceholder} is inflated.
+   */
+  public interface OnInflateListener {
+
+    /**
+     * Invoked after the subtree was inflated and has replaced the placeholder in its parent.
+     *
+     * @param placeholder
+     *     The placeholder, which no longer has a parent.
+     * @param inflated
+     *     The inflated view.
+     */
+    void onInflate(@NonNull LazyPlaceholder placeholder, @NonNull View inflated);
+
+  }
+
+  private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+  // The values of the android:visibility enum.
+  private static final int[] VISIBILITY_FLAGS = {VISIBLE, INVISIBLE, GONE};
+
+  private static final LayoutParams DISCARDED_PARAMS = new LayoutParams(0, 0);
+
+  /**
+   * Check if a tag declares {@code app:inflateLazily="true"}.
+   */
+  static boolean isLazy(AttributeSet attrs) {
+    int attr = R.attr.inflateLazily;
+    for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+      if (attrs.getAttributeNameResource(i) == attr) {
+        return attrs.getAttributeBooleanValue(i, false);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check if a tag is created as a view. {@link android.view.LayoutInflater} handles the other tags without its
+   * factories, so the inflater never sees them.
+   */
+  static boolean createsView(String name) {
+    return !"include".equals(name) && !"merge".equals(name) && !"requestFocus".equals(name) && !"tag".equals(name)
+        && !"blink".equals(name);
+  }
+
+  /**
+   * Read a layout up to a tag that was skipped. Tags are identified by their line and their ordinal among the tags
+   * on that line that are {@link #createsView(String) created as views}, so two lazy tags on one line are told
+   * apart.
+   *
+   * @param parser
+   *     A parser at the start of the layout.
+   * @return The number of events read, the last one being the start of the tag, or -1 if the layout has no such tag.
+   */
+  static int findTag(XmlPullParser parser, int line, int depth, int ordinal)
+      throws XmlPullParserException, IOException {
+    int events = 0;
+    int seen = 0;
+    int type;
+    while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+      events++;
+      if (type == XmlPullParser.START_TAG && parser.getLineNumber() == line && createsView(parser.getName())
+          && seen++ == ordinal) {
+        return parser.getDepth() == depth ? events : -1;
+      }
+    }
+    return -1;
+  }
+
+  private final ObservableLayoutInflater inflater;
+  private final int layout;
+  private final int line;
+  private final int depth;
+  private final int ordinal;
+  private final int declaredVisibility;
+  private WeakReference<View> inflatedViewRef;
+  private OnInflateListener listener;
+
+  LazyPlaceholder(Context context, AttributeSet attrs, ObservableLayoutInflater inflater, int layout, int line,
+                  int depth, int ordinal) {
+    super(context);
+    this.inflater = inflater;
+    this.layout = layout;
+    this.line = line;
+    this.depth = depth;
+    this.ordinal = ordinal;
+    int visibility = attrs.getAttributeIntValue(ANDROID_NS, "visibility", 0);
+    declaredVisibility = visibility >= 0 && visibility < VISIBILITY_FLAGS.length
+        ? VISIBILITY_FLAGS[visibility] : VISIBLE;
+    setId(attrs.getIdAttributeResourceValue(NO_ID));
+    setWillNotDraw(true);
+    super.setVisibility(GONE);
+  }
+
+  /**
+   * Specifies the listener to be notified after the subtree was inflated.
+   *
+   * @param listener
+   *     The listener, or {@code null}.
+   */
+  public void setOnInflateListener(@Nullable OnInflateListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Inflate the subtree on the main thread and replace the placeholder with it. The placeholder must be in a parent.
+   *
+   * @return The inflated view.
+   */
+  @NonNull public View inflate() {
+    ViewParent parent = getParent();
+    if (!(parent instanceof ViewGroup)) {
+      throw new IllegalStateException("LazyPlaceholder must have a non-null ViewGroup parent");
+    }
+    ViewGroup group = (ViewGroup) parent;
+    // Inflate with the placeholder's context so android:theme overlays of the ancestor tags still apply.
+    View view = inflater.inflateSubtree(getContext(), layout, line, depth, ordinal, group);
+    int index = group.indexOfChild(this);
+    group.removeViewInLayout(this);
+    LayoutParams params = getLayoutParams();
+    if (params != null) {
+      group.addView(view, index, params);
+    } else {
+      group.addView(view, index);
+    }
+    inflatedViewRef = new WeakReference<>(view);
+    if (listener != null) {
+      listener.onInflate(this, view);
+    }
+    return view;
+  }
+
+  /**
+   * Making the placeholder {@link View#VISIBLE} or {@link View#INVISIBLE} inflates the subtree and gives the
+   * inflated view that visibility. After that the visibility is passed on to the inflated view.
+   *
+   * @param visibility
+   *     One of {@link View#VISIBLE}, {@link View#INVISIBLE} or {@link View#GONE}.
+   */
+  @Override public void setVisibility(int visibility) {
+    View view = inflatedViewRef != null ? inflatedViewRef.get() : null;
+    if (view == null && visibility != GONE) {
+      view = inflate();
+    }
+    if (view != null) {
+      view.setVisibility(visibility);
+    }
+  }
+
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    if (declaredVisibility != GONE && inflatedViewRef == null) {
+      // Don't change the hierarchy while it is being attached.
+      post(new Runnable() {
+
+        @Override public void run() {
+          if (inflatedViewRef == null && getParent() != null) {
+            setVisibility(declaredVisibility);
+          }
+        }
+
+      });
+    }
+  }
+
+  // The inflater creates the children of the lazy tag as a Sink, which are added here and discarded.
+
+  @Override public void addView(View child, int index, LayoutParams params) {
+  }
+
+  @Override public LayoutParams generateLayoutParams(AttributeSet attrs) {
+    return DISCARDED_PARAMS;
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    setMeasuredDimension(0, 0);
+  }
+
+  @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+  }
+
+  /**
+   * Created in place of every tag below a lazy tag. Its children are discarded too.
+   */
+  static final class Sink extends ViewGroup {
+
+    Sink(Context context) {
+      super(context);
+    }
+
+    @Override public void addView(View child, int index, LayoutParams params) {
+    }
+
+    @Override public LayoutParams generateLayoutParams(AttributeSet attrs) {
+      return DISCARDED_PARAMS;
+    }
+
+    @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+    }
+
+  }
+
+}
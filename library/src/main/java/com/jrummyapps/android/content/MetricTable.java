@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size, lock-free table of timing statistics. Keys are claimed with a compare-and-set on first use and all
+ * counters are allocated up front, so recording never allocates or blocks. Once the table is full, new keys are
+ * recorded in a shared overflow slot.
+ */
+final class MetricTable {
+
+  /**
+   * Number of histogram buckets. Bucket 0 holds durations under a microsecond, bucket i holds [2^(i-1), 2^i)
+   * microseconds.
+   */
+  static final int BUCKETS = 20;
+
+  private final int capacity;
+  private final AtomicReferenceArray<Object> keys;
+  private final AtomicIntegerArray intKeys;
+  private final AtomicLongArray counts;
+  private final AtomicLongArray totals;
+  private final AtomicLongArray maxes;
+  private final AtomicLongArray histogram;
+
+  /**
+   * @param capacity
+   *     the maximum number of distinct keys, rounded up to a power of two
+   */
+  MetricTable(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.capacity = size;
+    this.keys = new AtomicReferenceArray<>(size);
+    this.intKeys = new AtomicIntegerArray(size);
+    // One extra slot for keys that no longer fit.
+    this.counts = new AtomicLongArray(size + 1);
+    this.totals = new AtomicLongArray(size + 1);
+    this.maxes = new AtomicLongArray(size + 1);
+    this.histogram = new AtomicLongArray((size + 1) * BUCKETS);
+  }
+
+  void record(Object key, long nanos) {
+    recordAt(slotFor(key), nanos);
+  }
+
+  /**
+   * Record a duration for a non-zero int key. Int keys and object keys must not be mixed in one table.
+   */
+  void record(int key, long nanos) {
+    recordAt(slotFor(key), nanos);
+  }
+
+  private void recordAt(int slot, long nanos) {
+    counts.incrementAndGet(slot);
+    totals.addAndGet(slot, nanos);
+    long max;
+    while (nanos > (max = maxes.get(slot)) && !maxes.compareAndSet(slot, max, nanos)) {
+      // retry
+    }
+    histogram.incrementAndGet(slot * BUCKETS + bucket(nanos));
+  }
+
+  private int slotFor(Object key) {
+    int mask = capacity - 1;
+    int slot = spread(key.hashCode()) & mask;
+    for (int probe = 0; probe < capacity; probe++) {
+      Object current = keys.get(slot);
+      if (current == null) {
+        if (keys.compareAndSet(slot, null, key)) {
+          return slot;
+        }
+        current = keys.get(slot);
+      }
+      if (current == key || current.equals(key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return capacity;
+  }
+
+  private int slotFor(int key) {
+    int mask = capacity - 1;
+    int slot = spread(key) & mask;
+    for (int probe = 0; probe < capacity; probe++) {
+      int current = intKeys.get(slot);
+      if (current == 0) {
+        if (intKeys.compareAndSet(slot, 0, key)) {
+          return slot;
+        }
+        current = intKeys.get(slot);
+      }
+      if (current == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return capacity;
+  }
+
+  /**
+   * Copy the recorded statistics. The copy is not atomic across slots; a duration recorded concurrently may be
+   * partially included.
+   *
+   * @param overflowKey
+   *     the key reported for durations that didn't fit in the table
+   * @return the statistics of every used slot
+   */
+  InflationMonitor.Stat[] snapshot(Object overflowKey) {
+    int used = 0;
+    for (int slot = 0; slot <= capacity; slot++) {
+      if (counts.get(slot) != 0) {
+        used++;
+      }
+    }
+    InflationMonitor.Stat[] stats = new InflationMonitor.Stat[used];
+    int index = 0;
+    for (int slot = 0; slot <= capacity && index < used; slot++) {
+      long count = counts.get(slot);
+      if (count == 0) {
+        continue;
+      }
+      Object key;
+      if (slot == capacity) {
+        key = overflowKey;
+      } else if (keys.get(slot) != null) {
+        key = keys.get(slot);
+      } else {
+        key = intKeys.get(slot);
+      }
+      long[] buckets = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = histogram.get(slot * BUCKETS + i);
+      }
+      stats[index++] = new InflationMonitor.Stat(key, count, totals.get(slot), maxes.get(slot), buckets);
+    }
+    return stats;
+  }
+
+  /**
+   * Reset all counters and release all keys. Durations recorded concurrently may be lost or kept under their old key.
+   */
+  void reset() {
+    for (int slot = 0; slot < capacity; slot++) {
+      keys.set(slot, null);
+      intKeys.set(slot, 0);
+    }
+    for (int slot = 0; slot <= capacity; slot++) {
+      counts.set(slot, 0);
+      totals.set(slot, 0);
+      maxes.set(slot, 0);
+    }
+    for (int i = 0; i < histogram.length(); i++) {
+      histogram.set(i, 0);
+    }
+  }
+
+  private static int bucket(long nanos) {
+    long micros = nanos / 1000;
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    return bucket < BUCKETS ? bucket : BUCKETS - 1;
+  }
+
+  private static int spread(int hash) {
+    hash *= 0x9E3779B1;
+    return hash ^ (hash >>> 16);
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jrummyapps.android.content.decor.MainThreadDecorator;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Inflates layouts on a pool of worker threads and delivers the finished view on the main thread. The decorators
+ * and {@link ObservableViewFactory} of the context's {@link ObservableLayoutInflater} are applied on the worker thread,
+ * except for {@link MainThreadDecorator}s which are applied on the main thread just before the view is delivered.</p>
+ *
+ * <p>Like the support library's {@code AsyncLayoutInflater}, the background inflater doesn't use factories set on the
+ * context's inflater or the Activity, so {@code <fragment>} tags and AppCompat widget substitution aren't supported.
+ * If inflation fails on the worker thread, the layout is inflated again on the main thread.</p>
+ *
+ * <pre>
+ * new ObservableAsyncLayoutInflater(context).inflate(R.layout.item, parent, new OnInflateFinishedListener() {
+ *   &#64;Override public void onInflateFinished(View view, int resid, ViewGroup parent) {
+ *     parent.addView(view);
+ *   }
+ * });
+ * </pre>
+ */
+public class ObservableAsyncLayoutInflater {
+
+  private static final String TAG = "ObservableAsyncInflater";
+
+  /**
+   * Callback invoked on the main thread once a layout has been inflated.
+   */
+  public interface OnInflateFinishedListener {
+
+    /**
+     * @param view
+     *     The inflated view, not attached to the parent.
+     * @param resid
+     *     The layout resource that was inflated.
+     * @param parent
+     *     The parent passed to {@link #inflate(int, ViewGroup, OnInflateFinishedListener)}.
+     */
+    void onInflateFinished(@NonNull View view, @LayoutRes int resid, @Nullable ViewGroup parent);
+
+  }
+
+  private final ThreadLocal<LayoutInflater> workerInflaters = new ThreadLocal<>();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final LayoutInflater inflater;
+  private final Executor executor;
+
+  /**
+   * Create an async inflater that uses a shared pool of background threads.
+   *
+   * @param context
+   *     The context to inflate in. Its {@link LayoutInflater} should be an {@link ObservableLayoutInflater}.
+   */
+  public ObservableAsyncLayoutInflater(@NonNull Context context) {
+    this(context, DefaultExecutorHolder.EXECUTOR);
+  }
+
+  /**
+   * Create an async inflater that inflates on the given executor.
+   *
+   * @param context
+   *     The context to inflate in. Its {@link LayoutInflater} should be an {@link ObservableLayoutInflater}.
+   * @param executor
+   *     The executor to inflate on. Each of its threads gets its own inflater.
+   */
+  public ObservableAsyncLayoutInflater(@NonNull Context context, @NonNull Executor executor) {
+    this.inflater = LayoutInflater.from(context);
+    this.executor = executor;
+  }
+
+  /**
+   * Inflate a layout in the background. The view is created with layout params from {@code parent} but is not
+   * attached to it.
+   *
+   * @param resid
+   *     The layout resource to inflate.
+   * @param parent
+   *     Used to generate the layout params of the root view. May be null.
+   * @param callback
+   *     Invoked on the main thread with the inflated view.
+   */
+  @UiThread
+  public void inflate(@LayoutRes final int resid, @Nullable final ViewGroup parent,
+                      @NonNull final OnInflateFinishedListener callback) {
+    executor.execute(new Runnable() {
+
+      @Override public void run() {
+        View view = null;
+        List<Runnable> deferred;
+        DeferredDecorations.begin();
+        try {
+          view = getWorkerInflater().inflate(resid, parent, false);
+        } catch (RuntimeException e) {
+          Log.w(TAG, "Failed to inflate resource in the background! Retrying on the UI thread", e);
+        } finally {
+          deferred = DeferredDecorations.end();
+        }
+        deliver(view, deferred, resid, parent, callback);
+      }
+
+    });
+  }
+
+  private void deliver(final View view, final List<Runnable> deferred, final int resid, final ViewGroup parent,
+                       final OnInflateFinishedListener callback) {
+    handler.post(new Runnable() {
+
+      @Override public void run() {
+        View result = view;
+        if (result == null) {
+          result = inflater.inflate(resid, parent, false);
+        } else {
+          for (Runnable decoration : deferred) {
+            decoration.run();
+          }
+        }
+        callback.onInflateFinished(result, resid, parent);
+      }
+
+    });
+  }
+
+  private LayoutInflater getWorkerInflater() {
+    LayoutInflater workerInflater = workerInflaters.get();
+    if (workerInflater == null) {
+      ObservableLayoutInflater observable;
+      if (inflater instanceof ObservableLayoutInflater) {
+        observable = (ObservableLayoutInflater) inflater;
+      } else {
+        observable = new ObservableLayoutInflater(inflater, inflater.getContext());
+      }
+      workerInflater = observable.cloneForBackground();
+      workerInflaters.set(workerInflater);
+    }
+    return workerInflater;
+  }
+
+  private static class DefaultExecutorHolder {
+
+    static final Executor EXECUTOR;
+
+    static {
+      int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+      EXECUTOR = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override public Thread newThread(@NonNull final Runnable runnable) {
+          Thread thread = new Thread(new Runnable() {
+
+            @Override public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              runnable.run();
+            }
+
+          }, "ObservableAsyncInflater #" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+    }
+
+  }
+
+}
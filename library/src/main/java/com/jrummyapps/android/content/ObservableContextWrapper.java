@@ -22,6 +22,7 @@ import android.support.annotation.NonNull;
 import android.view.LayoutInflater;
 
 import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.TreeDecorator;
 
 /**
  * A {@link ContextWrapper} that provides a {@link ObservableLayoutInflater}.
@@ -32,20 +33,45 @@ public class ObservableContextWrapper extends ContextWrapper {
     return new Builder(context);
   }
 
-  private final ObservableViewFactory viewFactory;
-  private final Decorator[] decorators;
-  private LayoutInflater inflater;
+  /**
+   * Wrap a context with an existing configuration, e.g. one shared by an Activity and its dialogs.
+   *
+   * @param context
+   *     The base context.
+   * @param config
+   *     The configuration, see {@link Builder#buildConfig()}.
+   * @return The context wrapper.
+   */
+  public static ObservableContextWrapper wrap(@NonNull Context context, @NonNull InflationConfig config) {
+    return new ObservableContextWrapper(context, config);
+  }
+
+  private final InflationConfig config;
+  private volatile LayoutInflater inflater;
 
-  ObservableContextWrapper(Builder builder) {
-    super(builder.context);
-    this.viewFactory = builder.viewFactory;
-    this.decorators = builder.decorators;
+  ObservableContextWrapper(Context context, InflationConfig config) {
+    super(context);
+    this.config = config;
+  }
+
+  /**
+   * @return The configuration of this context's {@link ObservableLayoutInflater}.
+   */
+  @NonNull public InflationConfig getInflationConfig() {
+    return config;
   }
 
   @Override public Object getSystemService(String name) {
     if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+      LayoutInflater inflater = this.inflater;
       if (inflater == null) {
-        inflater = new ObservableLayoutInflater(this).setViewFactory(viewFactory).setDecorators(decorators);
+        synchronized (this) {
+          inflater = this.inflater;
+          if (inflater == null) {
+            inflater = new ObservableLayoutInflater(this).setInflationConfig(config);
+            this.inflater = inflater;
+          }
+        }
       }
       return inflater;
     }
@@ -55,8 +81,7 @@ public class ObservableContextWrapper extends ContextWrapper {
   public static class Builder {
 
     final Context context;
-    Decorator[] decorators;
-    ObservableViewFactory viewFactory;
+    final InflationConfig.Builder config = new InflationConfig.Builder();
 
     Builder(@NonNull Context context) {
       this.context = context;
@@ -70,7 +95,20 @@ public class ObservableContextWrapper extends ContextWrapper {
      * @return This object for chaining method calls
      */
     public Builder setDecorators(@NonNull Decorator... decorators) {
-      this.decorators = decorators;
+      config.setDecorators(decorators);
+      return this;
+    }
+
+    /**
+     * Set the decorators to be applied to every view of a layout once the whole layout has been inflated.
+     *
+     * @param treeDecorators
+     *     The {@link TreeDecorator tree decorator(s)}
+     * @return This object for chaining method calls
+     * @see ObservableLayoutInflater#setTreeDecorators(TreeDecorator...)
+     */
+    public Builder setTreeDecorators(@NonNull TreeDecorator... treeDecorators) {
+      config.setTreeDecorators(treeDecorators);
       return this;
     }
 
@@ -82,17 +120,132 @@ public class ObservableContextWrapper extends ContextWrapper {
      * @return This object for chaining method calls
      */
     public Builder setViewFactory(@NonNull ObservableViewFactory viewFactory) {
-      this.viewFactory = viewFactory;
+      config.setViewFactory(viewFactory);
+      return this;
+    }
+
+    /**
+     * Set a factory that creates views without reflection, usually one generated with {@code @GenerateViewFactory}.
+     *
+     * @param precompiledFactory
+     *     the factory to try before creating views through reflection
+     * @return This object for chaining method calls
+     * @see ObservableLayoutInflater#setPrecompiledFactory(LayoutInflater.Factory2)
+     */
+    public Builder setPrecompiledFactory(@NonNull LayoutInflater.Factory2 precompiledFactory) {
+      config.setPrecompiledFactory(precompiledFactory);
+      return this;
+    }
+
+    /**
+     * Record inflation timings. Off by default.
+     *
+     * @param monitor
+     *     the {@link InflationMonitor} to record to
+     * @return This object for chaining method calls
+     */
+    public Builder setInflationMonitor(@NonNull InflationMonitor monitor) {
+      config.setInflationMonitor(monitor);
+      return this;
+    }
+
+    /**
+     * Record a trace of inflate calls, view creations and decorators. Off by default.
+     *
+     * @param tracer
+     *     the {@link InflationTracer} to record to
+     * @return This object for chaining method calls
+     */
+    public Builder setInflationTracer(@NonNull InflationTracer tracer) {
+      config.setInflationTracer(tracer);
+      return this;
+    }
+
+    /**
+     * Inflate tags with {@code app:inflateLazily="true"} and their children only when they are made visible. Off by
+     * default.
+     *
+     * @param enabled
+     *     {@code true} to inflate lazy tags lazily
+     * @return This object for chaining method calls
+     * @see LazyPlaceholder
+     */
+    public Builder setLazyInflationEnabled(boolean enabled) {
+      config.setLazyInflation(enabled);
+      return this;
+    }
+
+    /**
+     * Create other views in place of the views named in layouts, without constructing the original views.
+     *
+     * @param substitutions
+     *     the {@link ViewSubstitutions}
+     * @return This object for chaining method calls
+     * @see ObservableLayoutInflater#setViewSubstitutions(ViewSubstitutions)
+     */
+    public Builder setViewSubstitutions(@NonNull ViewSubstitutions substitutions) {
+      config.setViewSubstitutions(substitutions);
+      return this;
+    }
+
+    /**
+     * Remember which decorators were skipped for each tag of recently inflated layouts so they are not checked again
+     * the next time the layout is inflated. Off by default.
+     *
+     * @param replayCache
+     *     the {@link LayoutReplayCache}
+     * @return This object for chaining method calls
+     * @see ObservableLayoutInflater#setLayoutReplayCache(LayoutReplayCache)
+     */
+    public Builder setLayoutReplayCache(@NonNull LayoutReplayCache replayCache) {
+      config.setLayoutReplayCache(replayCache);
+      return this;
+    }
+
+    /**
+     * Index the views of every inflated layout by id. Off by default.
+     *
+     * @param enabled
+     *     {@code true} to build a {@link ViewIdIndex} for every inflated layout
+     * @return This object for chaining method calls
+     * @see ViewIdIndex#findViewById(android.view.View, int)
+     */
+    public Builder setViewIdIndexEnabled(boolean enabled) {
+      config.setViewIdIndex(enabled);
+      return this;
+    }
+
+    /**
+     * Set the build-time table of tags that declare decorated attributes, usually
+     * {@code GeneratedDecorationTable.create()}.
+     *
+     * @param decorationTable
+     *     the {@link DecorationTable}
+     * @return This object for chaining method calls
+     * @see ObservableLayoutInflater#setDecorationTable(DecorationTable)
+     */
+    public Builder setDecorationTable(@NonNull DecorationTable decorationTable) {
+      config.setDecorationTable(decorationTable);
       return this;
     }
 
+    /**
+     * Create an immutable {@link InflationConfig} from the supplied arguments. The config can be shared by several
+     * context wrappers with {@link ObservableContextWrapper#wrap(Context, InflationConfig)}.
+     *
+     * @return The configuration.
+     */
+    public InflationConfig buildConfig() {
+      return config.build();
+    }
+
     /**
      * Create the {@link ObservableContextWrapper}
      *
      * @return The context wrapper with the supplied arguments to the builder.
      */
     public ObservableContextWrapper create() {
-      return new ObservableContextWrapper(this);
+      return new ObservableContextWrapper(context, buildConfig());
     }
 
   }
@@ -18,26 +18,67 @@ package com.jrummyapps.android.content;
 
 import android.content.Context;
 import android.content.ContextWrapper;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Build;
+import android.support.annotation.NonNull;
 import android.util.AttributeSet;
+import android.view.InflateException;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
 
+import com.jrummyapps.android.content.decor.CompositeAttrsDecorator;
 import com.jrummyapps.android.content.decor.Decorator;
+import com.jrummyapps.android.content.decor.MainThreadDecorator;
+import com.jrummyapps.android.content.decor.ScheduledDecorator;
+import com.jrummyapps.android.content.decor.TreeDecorator;
 
-import java.lang.reflect.Field;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
- * A {@link LayoutInflater} which takes a {@link ObservableViewFactory} to operate on newly constructed views.
+ * <p>A {@link LayoutInflater} which takes a {@link ObservableViewFactory} to operate on newly constructed views.</p>
+ *
+ * <p>Layouts can be inflated from several threads. The configuration is immutable and published through volatile
+ * fields. The thread that created the inflater owns it, which is not necessarily the main thread, and inflates
+ * without any locking. Every {@code inflate} call on another thread is handed to a private copy for that thread,
+ * since {@link LayoutInflater} keeps its constructor arguments in a single array. Factories, filters and the
+ * configuration should be set before the inflater is used on other threads, and decorators, factories and the view
+ * factory must be safe to call on every thread that inflates.</p>
  */
 public class ObservableLayoutInflater extends LayoutInflater {
 
-  private static final String[] ANDROID_WIDGET_PREFIXES = {"android.widget.", "android.webkit."};
+  /**
+   * Register additional package prefixes that short tag names are looked up in. By default views are looked up in
+   * {@code android.widget.}, {@code android.webkit.} and then {@code android.view.}. Added prefixes are searched
+   * after the {@code android.widget.} and {@code android.webkit.} packages. This applies to every inflater in the
+   * process.
+   *
+   * @param prefixes
+   *     The package prefixes, e.g. "com.example.widget."
+   */
+  public static void addWidgetPrefixes(String... prefixes) {
+    WidgetPrefixes.add(prefixes);
+  }
 
-  private ObservableViewFactory viewFactory;
-  private Decorator[] decorators;
-  private boolean setPrivateFactory;
+  /** The thread that created the inflater. Other threads inflate with a copy from {@link #threadInflater()}. */
+  private final Thread owner = Thread.currentThread();
+  private final Map<Thread, ObservableLayoutInflater> threadInflaters = new WeakHashMap<>();
+  private volatile InflationConfig config = InflationConfig.EMPTY;
+  private volatile ViewPool viewPool;
+  private boolean ignoreContextFactory;
+  private volatile boolean setPrivateFactory;
+  private volatile boolean privateFactoryInstalled;
 
   public ObservableLayoutInflater(ContextWrapper context) {
     this(LayoutInflater.from(context.getBaseContext()), context);
@@ -59,13 +100,168 @@ public class ObservableLayoutInflater extends LayoutInflater {
     }
   }
 
+  /**
+   * Creates an inflater without any factories, used to inflate off the main thread.
+   */
+  private ObservableLayoutInflater(Context context) {
+    super(context);
+  }
+
+  /**
+   * Clones share this inflater's immutable {@link InflationConfig}, so cloning copies no decorator state. Every call
+   * returns a new inflater since callers (like fragments) set their own factories on the clone.
+   */
   @Override public LayoutInflater cloneInContext(Context newContext) {
-    return new ObservableLayoutInflater(this, newContext, true).setViewFactory(viewFactory).setDecorators(decorators);
+    ObservableLayoutInflater inflater = new ObservableLayoutInflater(this, newContext, true);
+    inflater.config = config;
+    return inflater;
+  }
+
+  /**
+   * Create an inflater for a background thread with the same decorators, view factory, precompiled factory and
+   * monitor as this one. Factories set with {@link #setFactory(Factory)} or {@link #setFactory2(Factory2)} and the
+   * context's own factory (e.g. an Activity) are not used since they usually expect to run on the main thread. The
+   * private factory is always installed so views of custom classes are decorated too.
+   *
+   * @return A new inflater that isn't shared with any other thread.
+   */
+  ObservableLayoutInflater cloneForBackground() {
+    ObservableLayoutInflater inflater = new ObservableLayoutInflater(getContext());
+    inflater.config = config;
+    inflater.ignoreContextFactory = true;
+    return inflater;
   }
 
   @Override public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+    if (Thread.currentThread() != owner) {
+      return threadInflater().inflate(resource, root, attachToRoot);
+    }
+    ViewPool viewPool = this.viewPool;
+    if (viewPool != null && !attachToRoot) {
+      View view = viewPool.acquire(resource, root);
+      if (view != null) {
+        return view;
+      }
+    }
     setPrivateFactoryInternal();
-    return super.inflate(resource, root, attachToRoot);
+    InflationConfig config = this.config;
+    boolean inFrame = config.decorationTable != null || config.treeDecorators != null || config.lazyInflation
+        || config.replayCache != null || config.viewIdIndex;
+    if (!config.instrumented && !inFrame) {
+      return super.inflate(resource, root, attachToRoot);
+    }
+    long start = config.instrumented ? System.nanoTime() : 0;
+    try {
+      if (!inFrame) {
+        return super.inflate(resource, root, attachToRoot);
+      }
+      XmlResourceParser parser = getContext().getResources().getLayout(resource);
+      return inflateInFrame(resource, parser, 1, -1, 0, root, attachToRoot, config);
+    } finally {
+      if (config.instrumented) {
+        long nanos = System.nanoTime() - start;
+        if (config.monitor != null) {
+          config.monitor.recordInflate(resource, nanos);
+        }
+        if (config.tracer != null) {
+          config.tracer.recordInflate(resource, start, nanos);
+        }
+      }
+    }
+  }
+
+  @Override public View inflate(XmlPullParser parser, ViewGroup root, boolean attachToRoot) {
+    if (Thread.currentThread() != owner) {
+      return threadInflater().inflate(parser, root, attachToRoot);
+    }
+    setPrivateFactoryInternal();
+    return super.inflate(parser, root, attachToRoot);
+  }
+
+  /**
+   * Same as {@link LayoutInflater#inflate(int, ViewGroup, boolean)} but remembers which layout and parser the thread
+   * is inflating, so tags can be looked up in the {@link DecorationTable} and the {@link LayoutReplayCache} and lazy
+   * tags can be skipped, and which views were created, so the tree decorators and the {@link ViewIdIndex} can visit
+   * them without walking the hierarchy. The parser is closed.
+   *
+   * @param rootLine
+   *     The line of the root tag if the inflation starts in the middle of the layout, otherwise -1.
+   * @param rootOrdinal
+   *     The ordinal of the root tag on its line.
+   */
+  private View inflateInFrame(int resource, XmlResourceParser parser, int rootDepth, int rootLine, int rootOrdinal,
+                              ViewGroup root, boolean attachToRoot, InflationConfig config) {
+    TreeDecorator[] treeDecorators = config.treeDecorators;
+    InflationFrame frame = InflationFrame.push(resource, parser, treeDecorators != null || config.viewIdIndex,
+        rootDepth);
+    if (rootLine != -1) {
+      frame.startAt(rootLine, rootOrdinal);
+    }
+    if (config.replayCache != null && config.decoratorIndex != null) {
+      frame.replay = config.replayCache.layout(resource, getContext().getResources());
+    }
+    View result;
+    try {
+      result = inflate(parser, root, attachToRoot);
+    } finally {
+      InflationFrame.pop(frame);
+      parser.close();
+    }
+    if (config.viewIdIndex && result != null) {
+      // Without the private factory views of custom classes are not seen by this inflater.
+      ViewIdIndex.attach(result, privateFactoryInstalled ? frame.views : null);
+    }
+    if (treeDecorators != null) {
+      // The views were recorded in the order they were created, which is pre-order. Visit each view once.
+      List<View> views = frame.views;
+      for (int i = 0, size = views.size(); i < size; i++) {
+        View view = views.get(i);
+        for (TreeDecorator decorator : treeDecorators) {
+          decorator.decorate(view, result);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Inflate the subtree of a tag that was skipped for a {@link LazyPlaceholder}. The tag is found by its line, depth
+   * and ordinal on the line, and a parser is left on the event before it so that the tag becomes the root of the
+   * inflation.
+   *
+   * @param context
+   *     The context of the placeholder, which carries the theme overlays of the tag's ancestors.
+   * @return The view of the tag, not attached to the parent.
+   */
+  View inflateSubtree(Context context, int layout, int line, int depth, int ordinal, ViewGroup parent) {
+    if (context != getContext()) {
+      return ((ObservableLayoutInflater) cloneInContext(context))
+          .inflateSubtree(context, layout, line, depth, ordinal, parent);
+    }
+    if (Thread.currentThread() != owner) {
+      return threadInflater().inflateSubtree(context, layout, line, depth, ordinal, parent);
+    }
+    setPrivateFactoryInternal();
+    Resources resources = getContext().getResources();
+    XmlResourceParser parser = resources.getLayout(layout);
+    try {
+      int events = LazyPlaceholder.findTag(parser, line, depth, ordinal);
+      if (events == -1) {
+        throw new InflateException("Lazily inflated tag not found at line " + line);
+      }
+      parser.close();
+      parser = resources.getLayout(layout);
+      for (int i = 1; i < events; i++) {
+        parser.next();
+      }
+    } catch (XmlPullParserException | IOException e) {
+      parser.close();
+      throw new InflateException("Error inflating the lazy tag at line " + line, e);
+    } catch (RuntimeException e) {
+      parser.close();
+      throw e;
+    }
+    return inflateInFrame(layout, parser, depth, line, ordinal, parent, false, config);
   }
 
   @Override public void setFactory(Factory factory) {
@@ -85,20 +281,23 @@ public class ObservableLayoutInflater extends LayoutInflater {
   }
 
   @Override protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
-    View view = null;
-    for (String prefix : ANDROID_WIDGET_PREFIXES) {
-      try {
-        view = createView(name, prefix, attrs);
-        if (view != null) {
-          break;
-        }
-      } catch (ClassNotFoundException ignored) {
+    long start = creationStart();
+    if (getFactory() == null && !privateFactoryInstalled) {
+      // No factory has had the chance to intercept the tag.
+      View view = intercept(name, getContext(), attrs, start);
+      if (view != null) {
+        return view;
       }
     }
+    View view = null;
+    String prefix = WidgetPrefixes.resolve(name, getContext().getClassLoader());
+    if (prefix != null) {
+      view = createView(name, prefix, attrs);
+    }
     if (view == null) {
       view = super.onCreateView(name, attrs);
     }
-    return observeAndCreateView(view, attrs);
+    return observeAndCreateView(view, name, attrs, start, InflationTracer.PATH_FRAMEWORK);
   }
 
   /**
@@ -109,7 +308,7 @@ public class ObservableLayoutInflater extends LayoutInflater {
    * @return This object for chaining method calls
    */
   public ObservableLayoutInflater setViewFactory(ObservableViewFactory viewFactory) {
-    this.viewFactory = viewFactory;
+    this.config = config.buildUpon().setViewFactory(viewFactory).build();
     return this;
   }
 
@@ -121,7 +320,158 @@ public class ObservableLayoutInflater extends LayoutInflater {
    * @return This object for chaining method calls
    */
   public ObservableLayoutInflater setDecorators(Decorator... decorators) {
-    this.decorators = decorators;
+    this.config = config.buildUpon().setDecorators(decorators).build();
+    return this;
+  }
+
+  /**
+   * Set a factory that creates views without reflection, usually one generated with
+   * {@code @GenerateViewFactory}. It is tried after any {@link Factory2} set on this inflater and before the view is
+   * created through reflection. Views created by it are still decorated and passed to the
+   * {@link ObservableViewFactory}. It is not used while a {@link Filter} is set, so the filter is asked about every
+   * class before it is constructed. This must be set before the first call to
+   * {@link #inflate(int, ViewGroup, boolean)}.
+   *
+   * @param precompiledFactory
+   *     The factory, or {@code null} to always use reflection.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setPrecompiledFactory(Factory2 precompiledFactory) {
+    this.config = config.buildUpon().setPrecompiledFactory(precompiledFactory).build();
+    return this;
+  }
+
+  /**
+   * Set a monitor that records how long inflation, view creation, decorators and the view factory take.
+   *
+   * @param monitor
+   *     The {@link InflationMonitor}, or {@code null} to stop recording.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setInflationMonitor(InflationMonitor monitor) {
+    this.config = config.buildUpon().setInflationMonitor(monitor).build();
+    return this;
+  }
+
+  /**
+   * Set a build-time table of the tags in the app's layouts that declare decorated attributes. Attribute decorators
+   * that only look at declared attributes are then skipped for all other tags of those layouts.
+   *
+   * @param decorationTable
+   *     The {@link DecorationTable}, usually {@code GeneratedDecorationTable.create()}, or {@code null}.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setDecorationTable(DecorationTable decorationTable) {
+    this.config = config.buildUpon().setDecorationTable(decorationTable).build();
+    return this;
+  }
+
+  /**
+   * Set the decorators to be invoked once for every view of a layout after
+   * {@link #inflate(int, ViewGroup, boolean)} has built the whole hierarchy.
+   *
+   * @param treeDecorators
+   *     The {@link TreeDecorator tree decorator(s)}
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setTreeDecorators(TreeDecorator... treeDecorators) {
+    this.config = config.buildUpon().setTreeDecorators(treeDecorators).build();
+    return this;
+  }
+
+  /**
+   * Set a tracer that records every inflate call, view creation and decorator invocation, to be exported as a trace.
+   *
+   * @param tracer
+   *     The {@link InflationTracer}, or {@code null} to stop tracing.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setInflationTracer(InflationTracer tracer) {
+    this.config = config.buildUpon().setInflationTracer(tracer).build();
+    return this;
+  }
+
+  /**
+   * Skip creating tags with {@code app:inflateLazily="true"} and their children until they are needed. See
+   * {@link LazyPlaceholder}.
+   *
+   * @param enabled
+   *     {@code true} to inflate lazy tags lazily.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setLazyInflationEnabled(boolean enabled) {
+    this.config = config.buildUpon().setLazyInflation(enabled).build();
+    return this;
+  }
+
+  /**
+   * Index the views of every inflated layout by id. See {@link ViewIdIndex}.
+   *
+   * @param enabled
+   *     {@code true} to build a {@link ViewIdIndex} for every inflated layout.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setViewIdIndexEnabled(boolean enabled) {
+    this.config = config.buildUpon().setViewIdIndex(enabled).build();
+    return this;
+  }
+
+  /**
+   * Remember which decorators were skipped for each tag of recently inflated layouts so they are not checked again
+   * the next time the layout is inflated.
+   *
+   * @param replayCache
+   *     The {@link LayoutReplayCache}, or {@code null} to check every decorator for every tag.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setLayoutReplayCache(LayoutReplayCache replayCache) {
+    this.config = config.buildUpon().setLayoutReplayCache(replayCache).build();
+    return this;
+  }
+
+  /**
+   * Create other views in place of the views named in layouts. The original view is never constructed.
+   *
+   * @param substitutions
+   *     The {@link ViewSubstitutions}, or {@code null} to create the views named in layouts.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setViewSubstitutions(ViewSubstitutions substitutions) {
+    this.config = config.buildUpon().setViewSubstitutions(substitutions).build();
+    return this;
+  }
+
+  /**
+   * Replace the decorators, tree decorators, view factory, precompiled factory, monitor, tracer, decoration table,
+   * view substitutions, lazy inflation setting, layout replay cache and view id index setting with a shared
+   * configuration.
+   *
+   * @param config
+   *     The {@link InflationConfig}, see {@link ObservableContextWrapper.Builder#buildConfig()}.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setInflationConfig(@NonNull InflationConfig config) {
+    this.config = config;
+    return this;
+  }
+
+  /**
+   * @return The configuration shared by this inflater and its clones.
+   */
+  @NonNull public InflationConfig getInflationConfig() {
+    return config;
+  }
+
+  /**
+   * Hand out pre-inflated views from a pool when a pooled layout is inflated without attaching it to the root. The pool
+   * is not copied to clones of this inflater.
+   *
+   * @param viewPool
+   *     The {@link ViewPool}, or {@code null} to always inflate.
+   * @return This object for chaining method calls
+   */
+  public ObservableLayoutInflater setViewPool(ViewPool viewPool) {
+    this.viewPool = viewPool;
     return this;
   }
 
@@ -131,25 +481,101 @@ public class ObservableLayoutInflater extends LayoutInflater {
    *
    * @param view
    *     The view being inflated
+   * @param name
+   *     The tag name of the view
    * @param attrs
    *     The attributes for the view
+   * @param start
+   *     The value of {@link #creationStart()} before the view was created
+   * @param path
+   *     How the view was created, one of the {@code PATH_} constants in {@link InflationTracer}
    * @return Newly created view
    */
-  View observeAndCreateView(View view, AttributeSet attrs) {
+  View observeAndCreateView(View view, String name, AttributeSet attrs, long start, byte path) {
     if (view == null) {
       return null;
     }
-    if (decorators != null) {
+    InflationConfig config = this.config;
+    boolean instrumented = config.instrumented;
+    InflationMonitor monitor = config.monitor;
+    InflationTracer tracer = config.tracer;
+    if (instrumented) {
+      long nanos = System.nanoTime() - start;
+      if (monitor != null) {
+        monitor.recordCreateView(name, nanos);
+      }
+      if (tracer != null) {
+        tracer.recordCreateView(name, view.getClass(), path, start, nanos);
+      }
+    }
+    DecoratorIndex decoratorIndex = config.decoratorIndex;
+    if (decoratorIndex != null) {
+      Decorator[] decorators;
+      if (config.decorationTable != null && !InflationFrame.isDecorated(config.decorationTable, attrs)) {
+        decorators = decoratorIndex.getUndeclared(view.getClass());
+      } else {
+        decorators = decoratorIndex.get(view.getClass());
+      }
+      if (config.replayCache != null && decorators.length != 0) {
+        decorators = InflationFrame.replay(decorators, view, attrs);
+      }
+      boolean mayDefer = decoratorIndex.hasDeferredDecorators();
+      boolean collecting = mayDefer && DeferredDecorations.isCollecting();
       for (Decorator decorator : decorators) {
-        decorator.apply(view, attrs);
+        int schedule = mayDefer && decorator instanceof ScheduledDecorator
+            ? ((ScheduledDecorator) decorator).schedule(view) : ScheduledDecorator.SCHEDULE_IMMEDIATE;
+        boolean immediate = schedule == ScheduledDecorator.SCHEDULE_IMMEDIATE;
+        if (collecting && (!immediate || decorator instanceof MainThreadDecorator)) {
+          DeferredDecorations.defer(decorator, view, attrs, schedule);
+          continue;
+        }
+        if (!immediate && DecorationScheduler.schedule(decorator, view, attrs, schedule)) {
+          continue;
+        }
+        if (!instrumented) {
+          decorator.apply(view, attrs);
+        } else {
+          long decoratorStart = System.nanoTime();
+          if (decorator instanceof CompositeAttrsDecorator) {
+            // Members are recorded on their own as well; the composite's time adds the shared attribute lookup.
+            ((CompositeAttrsDecorator) decorator).apply(view, attrs, config.memberTimer);
+          } else {
+            decorator.apply(view, attrs);
+          }
+          long nanos = System.nanoTime() - decoratorStart;
+          if (monitor != null) {
+            monitor.recordDecorator(decorator, nanos);
+          }
+          if (tracer != null) {
+            tracer.recordDecorator(decorator, view.getClass(), decoratorStart, nanos);
+          }
+        }
       }
     }
+    ObservableViewFactory viewFactory = config.viewFactory;
     if (viewFactory != null) {
-      return viewFactory.onViewCreated(view, attrs);
+      if (monitor == null) {
+        view = viewFactory.onViewCreated(view, attrs);
+      } else {
+        long factoryStart = System.nanoTime();
+        view = viewFactory.onViewCreated(view, attrs);
+        monitor.recordViewFactory(viewFactory, System.nanoTime() - factoryStart);
+      }
+    }
+    if ((config.treeDecorators != null || config.viewIdIndex) && view != null) {
+      InflationFrame.record(view);
     }
     return view;
   }
 
+  /**
+   * @return The time to pass to {@link #observeAndCreateView(View, String, AttributeSet, long, byte)}, or 0 when no
+   * {@link InflationMonitor} or {@link InflationTracer} is set.
+   */
+  long creationStart() {
+    return config.instrumented ? System.nanoTime() : 0;
+  }
+
   /**
    * Method to inflate custom layouts that haven't been handled else where. If this fails it will fall back
    * through to the PhoneLayoutInflater method of inflating custom views where we will NOT have a hook into.
@@ -167,53 +593,143 @@ public class ObservableLayoutInflater extends LayoutInflater {
    * @return view or the View we inflate in here.
    */
   View createCustomView(View parent, View view, String name, Context viewContext, AttributeSet attrs) {
-    // I by no means advise anyone to do this normally, but Google has locked down access to the createView() method,
-    // so we never get a callback with attributes at the end of the createViewFromTag chain (which would solve all
-    // this unnecessary rubbish). We at the very least try to optimise this as much as possible. We only call for
-    // customViews (As they are the ones that never go through onCreateView(...)). We also maintain the Field
-    // reference and make it accessible which will make a pretty significant difference to performance on Android 4.0+.
+    // Google has locked down access to the createView() method, so we never get a callback with attributes at the end
+    // of the createViewFromTag chain. We only do this for custom views (As they are the ones that never go through
+    // onCreateView(...)). Instead of swapping the context into LayoutInflater's private mConstructorArgs field and
+    // calling createView(), we keep our own constructor cache and call the constructor with the right context. This
+    // avoids reflective field access per view and is safe when several threads inflate at once.
 
     if (view == null && name.indexOf('.') > -1) {
-      Object[] mConstructorArgs = getConstrutorArgs();
-      Object lastContext = null;
-      if (mConstructorArgs != null) {
-        lastContext = mConstructorArgs[0];
-        // The LayoutInflater actually finds out the correct context to use.
-        // We just need to set it on the mConstructor for the internal method.
-        mConstructorArgs[0] = viewContext;
-        setConstructorArgs(mConstructorArgs);
-      }
+      Constructor<? extends View> constructor;
       try {
-        view = createView(name, null, attrs);
-      } catch (ClassNotFoundException ignored) {
-      } finally {
-        if (mConstructorArgs != null) {
-          mConstructorArgs[0] = lastContext;
-          setConstructorArgs(mConstructorArgs);
-        }
+        constructor = ConstructorCache.get(name, getContext().getClassLoader());
+      } catch (ClassNotFoundException e) {
+        return null;
+      } catch (NoSuchMethodException | ClassCastException e) {
+        throw new InflateException(attrs.getPositionDescription() + ": Error inflating class " + name, e);
       }
+      view = newView(constructor, name, viewContext, attrs);
     }
     return view;
   }
 
-  private Object[] getConstrutorArgs() {
-    Field field = ConstructorArgsHolder.FIELD;
-    if (field != null) {
-      try {
-        return (Object[]) field.get(this);
-      } catch (IllegalAccessException ignored) {
+  /**
+   * Called by the first factory that sees a tag, before anything is created.
+   *
+   * @return A {@link LazyPlaceholder} for a lazy tag, the stand-in for a tag below one, the decorated replacement from
+   * the {@link ViewSubstitutions}, or {@code null} to create the view as usual.
+   */
+  View intercept(String name, Context viewContext, AttributeSet attrs, long start) {
+    InflationConfig config = this.config;
+    if (config.lazyInflation) {
+      View view = skipLazily(viewContext, attrs);
+      if (view != null) {
+        return view;
+      }
+    }
+    if (config.substitutions != null) {
+      View view = substitute(name, viewContext, attrs);
+      if (view != null) {
+        return observeAndCreateView(view, name, attrs, start, InflationTracer.PATH_SUBSTITUTED);
       }
     }
     return null;
   }
 
-  private void setConstructorArgs(Object[] mConstructorArgs) {
-    Field field = ConstructorArgsHolder.FIELD;
-    if (field != null) {
-      try {
-        field.set(this, mConstructorArgs);
-      } catch (IllegalAccessException ignored) {
+  private View skipLazily(Context viewContext, AttributeSet attrs) {
+    InflationFrame frame = InflationFrame.current();
+    if (frame == null) {
+      return null;
+    }
+    XmlPullParser parser = frame.parser;
+    int depth = parser.getDepth();
+    int ordinal = attrs == parser ? frame.nextOrdinal() : -1;
+    if (frame.lazyDepth != 0) {
+      if (depth > frame.lazyDepth) {
+        // Below a lazy tag, including tags of layouts it includes.
+        return frame.sink;
+      }
+      frame.lazyDepth = 0;
+    }
+    if (attrs != parser || depth <= frame.rootDepth || !LazyPlaceholder.isLazy(attrs)) {
+      return null;
+    }
+    if (frame.sink == null) {
+      frame.sink = new LazyPlaceholder.Sink(viewContext);
+    }
+    frame.lazyDepth = depth;
+    return new LazyPlaceholder(viewContext, attrs, this, frame.layout, parser.getLineNumber(), depth, ordinal);
+  }
+
+  /**
+   * Create the replacement for a tag if the {@link ViewSubstitutions} have one. The view named by the tag is not
+   * created.
+   *
+   * @param name
+   *     The tag name
+   * @param viewContext
+   *     The context to create the view in
+   * @param attrs
+   *     The attributes of the tag
+   * @return The replacement, or {@code null} if the tag isn't substituted.
+   */
+  View substitute(String name, Context viewContext, AttributeSet attrs) {
+    ViewSubstitutions substitutions = config.substitutions;
+    Class<? extends View> replacement = substitutions != null ? substitutions.find(name, attrs) : null;
+    if (replacement == null) {
+      return null;
+    }
+    Constructor<? extends View> constructor;
+    try {
+      constructor = ConstructorCache.get(replacement);
+    } catch (NoSuchMethodException e) {
+      throw new InflateException(attrs.getPositionDescription() + ": Error inflating class " + replacement.getName(),
+          e);
+    }
+    return newView(constructor, replacement.getName(), viewContext, attrs);
+  }
+
+  private View newView(Constructor<? extends View> constructor, String name, Context viewContext,
+                       AttributeSet attrs) {
+    Filter filter = getFilter();
+    if (filter != null && !filter.onLoadClass(constructor.getDeclaringClass())) {
+      throw new InflateException(attrs.getPositionDescription() + ": Class not allowed to be inflated " + name);
+    }
+    View view;
+    try {
+      view = constructor.newInstance(viewContext, attrs);
+    } catch (InvocationTargetException e) {
+      throw new InflateException(attrs.getPositionDescription() + ": Error inflating class " + name, e.getCause());
+    } catch (Exception e) {
+      throw new InflateException(attrs.getPositionDescription() + ": Error inflating class " + name, e);
+    }
+    if (view instanceof ViewStub && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      // Use the same context when inflating ViewStub later.
+      ((ViewStub) view).setLayoutInflater(cloneInContext(viewContext));
+    }
+    return view;
+  }
+
+  /**
+   * Get the copy of this inflater that inflates for the calling thread. The copy shares this inflater's configuration,
+   * factories and filter but has its own constructor arguments, so threads don't have to take turns.
+   */
+  private ObservableLayoutInflater threadInflater() {
+    Thread thread = Thread.currentThread();
+    synchronized (threadInflaters) {
+      ObservableLayoutInflater inflater = threadInflaters.get(thread);
+      if (inflater == null || inflater.getFactory() != getFactory() || inflater.getFactory2() != getFactory2()
+          || inflater.getFilter() != getFilter()) {
+        inflater = new ObservableLayoutInflater(this, getContext(), true);
+        inflater.ignoreContextFactory = ignoreContextFactory;
+        // The private factory copied from this inflater is already safe to share.
+        inflater.setPrivateFactory = setPrivateFactory;
+        inflater.privateFactoryInstalled = privateFactoryInstalled;
+        threadInflaters.put(thread, inflater);
       }
+      inflater.config = config;
+      inflater.viewPool = viewPool;
+      return inflater;
     }
   }
 
@@ -221,15 +737,21 @@ public class ObservableLayoutInflater extends LayoutInflater {
     if (setPrivateFactory) {
       return;
     }
-    if (!(getContext() instanceof Factory2)) {
-      setPrivateFactory = true;
+    Factory2 contextFactory = !ignoreContextFactory && getContext() instanceof Factory2 ? (Factory2) getContext() : null;
+    InflationConfig config = this.config;
+    // Background inflaters never use the context's factory but still need the private factory to see custom views.
+    // Nothing is latched when the factory isn't needed yet, so it is installed once a later setter needs it.
+    if (!ignoreContextFactory && contextFactory == null && config.precompiledFactory == null
+        && config.substitutions == null && config.treeDecorators == null && !config.lazyInflation
+        && !config.viewIdIndex) {
       return;
     }
     Method method = SetPrivateFactoryHolder.METHOD;
     if (method != null) {
-      Factory2 factory = new PrivateWrapperFactory2(this, (Factory2) getContext());
+      Factory2 factory = new PrivateWrapperFactory2(this, contextFactory);
       try {
         method.invoke(this, factory);
+        privateFactoryInstalled = true;
       } catch (Exception ignored) {
       }
     }
@@ -247,7 +769,13 @@ public class ObservableLayoutInflater extends LayoutInflater {
     }
 
     @Override public View onCreateView(String name, Context context, AttributeSet attrs) {
-      return inflater.observeAndCreateView(factory.onCreateView(name, context, attrs), attrs);
+      long start = inflater.creationStart();
+      View view = inflater.intercept(name, context, attrs, start);
+      if (view != null) {
+        return view;
+      }
+      return inflater.observeAndCreateView(factory.onCreateView(name, context, attrs), name, attrs, start,
+          InflationTracer.PATH_FACTORY);
     }
 
   }
@@ -263,11 +791,23 @@ public class ObservableLayoutInflater extends LayoutInflater {
     }
 
     @Override public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
-      return inflater.observeAndCreateView(factory.onCreateView(parent, name, context, attrs), attrs);
+      long start = inflater.creationStart();
+      View view = inflater.intercept(name, context, attrs, start);
+      if (view != null) {
+        return view;
+      }
+      return inflater.observeAndCreateView(factory.onCreateView(parent, name, context, attrs), name, attrs, start,
+          InflationTracer.PATH_FACTORY);
     }
 
     @Override public View onCreateView(String name, Context context, AttributeSet attrs) {
-      return inflater.observeAndCreateView(factory.onCreateView(name, context, attrs), attrs);
+      long start = inflater.creationStart();
+      View view = inflater.intercept(name, context, attrs, start);
+      if (view != null) {
+        return view;
+      }
+      return inflater.observeAndCreateView(factory.onCreateView(name, context, attrs), name, attrs, start,
+          InflationTracer.PATH_FACTORY);
     }
 
   }
@@ -279,27 +819,33 @@ public class ObservableLayoutInflater extends LayoutInflater {
     }
 
     @Override public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
-      View view = factory.onCreateView(parent, name, context, attrs);
-      return inflater.observeAndCreateView(inflater.createCustomView(parent, view, name, context, attrs), attrs);
-    }
-
-  }
-
-  private static class ConstructorArgsHolder {
-    static final Field FIELD;
-
-    static {
-      Field field;
-      try {
-        field = LayoutInflater.class.getDeclaredField("mConstructorArgs");
-        if (!field.isAccessible()) {
-          field.setAccessible(true);
+      long start = inflater.creationStart();
+      if (inflater.getFactory() == null) {
+        // Tags are intercepted by the first factory that sees them.
+        View view = inflater.intercept(name, context, attrs, start);
+        if (view != null) {
+          return view;
         }
-      } catch (NoSuchFieldException e) {
-        field = null;
       }
-      FIELD = field;
+      byte path = InflationTracer.PATH_PRIVATE_FACTORY;
+      View view = factory != null ? factory.onCreateView(parent, name, context, attrs) : null;
+      Factory2 precompiledFactory = inflater.config.precompiledFactory;
+      // A filter has to see the class before the view is constructed, which only the reflective path does.
+      if (view == null && precompiledFactory != null && inflater.getFilter() == null) {
+        view = precompiledFactory.onCreateView(parent, name, context, attrs);
+        path = InflationTracer.PATH_PRECOMPILED;
+      }
+      if (view == null) {
+        view = inflater.createCustomView(parent, null, name, context, attrs);
+        path = InflationTracer.PATH_CUSTOM;
+      }
+      return inflater.observeAndCreateView(view, name, attrs, start, path);
+    }
+
+    @Override public View onCreateView(String name, Context context, AttributeSet attrs) {
+      return onCreateView(null, name, context, attrs);
     }
+
   }
 
   private static class SetPrivateFactoryHolder {
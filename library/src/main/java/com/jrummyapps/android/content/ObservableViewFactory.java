@@ -37,7 +37,8 @@ public interface ObservableViewFactory {
    * @param view
    *     The newly created view.
    * @param attrs
-   *     A read-only set of tag attributes.
+   *     A read-only set of tag attributes. Only valid during this call, use {@link AttributeSnapshot#of(AttributeSet)}
+   *     to keep them.
    * @return The view.
    */
   @NonNull View onViewCreated(@NonNull View view, @NonNull AttributeSet attrs);
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jrummyapps.observableinflator.R;
+
+import java.util.List;
+
+/**
+ * <p>A map from id to view of the views created by one inflation, built while the layout is inflated and kept as a
+ * tag on the view returned by {@link ObservableLayoutInflater#inflate(int, ViewGroup, boolean)}. Looking up a view is
+ * a hash table probe instead of a walk of the hierarchy:</p>
+ *
+ * <pre>
+ * ObservableContextWrapper.wrap(context).setViewIdIndexEnabled(true).create();
+ * ...
+ * View root = inflater.inflate(R.layout.screen, parent, false);
+ * TextView title = (TextView) ViewIdIndex.findViewById(root, R.id.title);
+ * </pre>
+ *
+ * <p>Ids map to the first view with that id in the layout, like {@link View#findViewById(int)}. When a layout is
+ * attached to the root, the views are added to the root's index. The index is a snapshot of the inflation: views
+ * added later, views of lazily inflated tags (see {@link LazyPlaceholder}) and ids changed after inflation are not in
+ * it, and views removed later are not taken out. {@link #findViewById(View, int)} falls back to
+ * {@link View#findViewById(int)} for ids that are not in the index.</p>
+ *
+ * <p>Keys are stored in an {@code int} array with open addressing, so lookups don't box the id.</p>
+ */
+public final class ViewIdIndex {
+
+  private static final int EMPTY = 0;
+
+  private int[] keys;
+  private View[] views;
+  private int size;
+
+  private ViewIdIndex(int expectedSize) {
+    int capacity = 8;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    keys = new int[capacity];
+    views = new View[capacity];
+  }
+
+  /**
+   * Get the index of the views inflated into a view.
+   *
+   * @param root
+   *     The view returned by {@link ObservableLayoutInflater#inflate(int, ViewGroup, boolean)}.
+   * @return The index, or {@code null} if the view was not inflated with the index enabled.
+   */
+  @Nullable public static ViewIdIndex of(@NonNull View root) {
+    Object tag = root.getTag(R.id.view_id_index);
+    return tag instanceof ViewIdIndex ? (ViewIdIndex) tag : null;
+  }
+
+  /**
+   * Find a view in the index of the root, or with {@link View#findViewById(int)} if it isn't there.
+   *
+   * @param root
+   *     The view returned by {@link ObservableLayoutInflater#inflate(int, ViewGroup, boolean)}.
+   * @param id
+   *     The id to search for.
+   * @return The view, or {@code null} if no view has the id.
+   */
+  @Nullable public static View findViewById(@NonNull View root, @IdRes int id) {
+    ViewIdIndex index = of(root);
+    if (index != null) {
+      View view = index.get(id);
+      if (view != null) {
+        return view;
+      }
+    }
+    return root.findViewById(id);
+  }
+
+  /**
+   * @param id
+   *     The id to search for.
+   * @return The first view inflated with the id, or {@code null}.
+   */
+  @Nullable public View get(@IdRes int id) {
+    if (id == View.NO_ID || id == EMPTY) {
+      return null;
+    }
+    int[] keys = this.keys;
+    int mask = keys.length - 1;
+    for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+      int key = keys[i];
+      if (key == id) {
+        return views[i];
+      }
+      if (key == EMPTY) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * @return The number of ids in the index.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Index the views created by an inflation and keep the index on the view the inflation returned.
+   *
+   * @param result
+   *     The view returned by the inflation.
+   * @param views
+   *     The views created by the inflation in pre-order, or {@code null} to walk the hierarchy of {@code result}.
+   */
+  static void attach(View result, List<View> views) {
+    ViewIdIndex index = of(result);
+    if (index == null) {
+      index = new ViewIdIndex(views != null ? views.size() : 16);
+      result.setTag(R.id.view_id_index, index);
+    }
+    if (views != null) {
+      for (int i = 0, size = views.size(); i < size; i++) {
+        index.put(views.get(i));
+      }
+    } else {
+      index.putTree(result);
+    }
+  }
+
+  private void putTree(View view) {
+    put(view);
+    if (view instanceof ViewGroup) {
+      ViewGroup group = (ViewGroup) view;
+      for (int i = 0, count = group.getChildCount(); i < count; i++) {
+        putTree(group.getChildAt(i));
+      }
+    }
+  }
+
+  /**
+   * Add a view unless a view with the same id was added before.
+   */
+  private void put(View view) {
+    int id = view.getId();
+    if (id == View.NO_ID || id == EMPTY) {
+      return;
+    }
+    int mask = keys.length - 1;
+    int i = hash(id) & mask;
+    while (keys[i] != EMPTY) {
+      if (keys[i] == id) {
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = id;
+    views[i] = view;
+    if (++size * 2 > keys.length) {
+      grow();
+    }
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    View[] oldViews = views;
+    keys = new int[oldKeys.length * 2];
+    views = new View[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      int key = oldKeys[j];
+      if (key != EMPTY) {
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        views[i] = oldViews[j];
+      }
+    }
+  }
+
+  private static int hash(int id) {
+    // Resource ids of one package differ in their low bits only; spread them over the table.
+    int h = id * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+
+/**
+ * <p>A pool of pre-inflated, pre-decorated views keyed by layout resource. Views are inflated one at a time while the
+ * main thread is idle and are handed out by {@link ObservableLayoutInflater#inflate(int, ViewGroup, boolean)} when
+ * {@code attachToRoot} is false and a pooled view was inflated for the same type of parent. When the pool is empty
+ * the layout is inflated as usual.</p>
+ *
+ * <pre>
+ * ObservableLayoutInflater inflater = (ObservableLayoutInflater) LayoutInflater.from(activity);
+ * ViewPool pool = new ViewPool(inflater).prewarm(R.layout.feed_item, recyclerView, 8);
+ * inflater.setViewPool(pool);
+ * </pre>
+ *
+ * <p>Set the pool on the inflater that actually inflates the items (usually {@code LayoutInflater.from(activity)});
+ * it is not copied by {@link ObservableLayoutInflater#cloneInContext(Context)} since pooled views belong to the
+ * context they were inflated in. The pool is emptied when the configuration changes or memory runs low, and refilled
+ * on idle once views are requested again. Call {@link #release()} when the pool is no longer needed, e.g. in
+ * {@code onDestroy()}. The application only holds the pool weakly and the pool only holds parents weakly, so a pool
+ * that is dropped without being released doesn't keep its Activity alive.</p>
+ *
+ * <p>The pool must only be used from the main thread.</p>
+ */
+public final class ViewPool implements MessageQueue.IdleHandler {
+
+  private final SparseArray<Entry> entries = new SparseArray<>();
+  private final ObservableLayoutInflater inflater;
+  private final TrimCallbacks callbacks;
+  private boolean idleScheduled;
+  private boolean trimmed;
+  private boolean warming;
+
+  /**
+   * Create a pool that inflates views with the given inflater.
+   *
+   * @param inflater
+   *     The inflater used to warm the pool. Decorators and the view factory set on it are applied to pooled views.
+   */
+  public ViewPool(@NonNull ObservableLayoutInflater inflater) {
+    this.inflater = inflater;
+    this.callbacks = new TrimCallbacks(this, inflater.getContext().getApplicationContext());
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      callbacks.context.registerComponentCallbacks(callbacks);
+    }
+  }
+
+  /**
+   * Keep up to {@code capacity} instances of a layout ready. The views are inflated while the main thread is idle.
+   * Calling this again for the same layout replaces its parent and capacity.
+   *
+   * @param layout
+   *     The layout resource to pool.
+   * @param parent
+   *     The parent the views will be added to, used to generate their layout params. Views are only handed out to
+   *     inflate calls with a parent of the same class. May be null.
+   * @param capacity
+   *     The maximum number of views to keep for this layout. 0 removes the layout from the pool.
+   * @return This object for chaining method calls
+   */
+  @MainThread
+  public ViewPool prewarm(@LayoutRes int layout, @Nullable ViewGroup parent, int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity < 0");
+    }
+    if (capacity == 0) {
+      entries.remove(layout);
+      return this;
+    }
+    Entry entry = entries.get(layout);
+    if (entry == null || entry.parentClass != classOf(parent)) {
+      entry = new Entry(parent);
+      entries.put(layout, entry);
+    }
+    entry.capacity = capacity;
+    entry.trimToCapacity();
+    trimmed = false;
+    scheduleIdle();
+    return this;
+  }
+
+  /**
+   * @param layout
+   *     The layout resource.
+   * @return The number of views currently pooled for the layout.
+   */
+  public int size(@LayoutRes int layout) {
+    Entry entry = entries.get(layout);
+    return entry == null ? 0 : entry.views.size();
+  }
+
+  /**
+   * Remove all pooled views. The pool is refilled on idle once views are requested again.
+   */
+  @MainThread
+  public void clear() {
+    for (int i = 0, size = entries.size(); i < size; i++) {
+      entries.valueAt(i).views.clear();
+    }
+    trimmed = true;
+  }
+
+  /**
+   * Remove all pooled views and layouts and stop listening for memory and configuration changes.
+   */
+  @MainThread
+  public void release() {
+    entries.clear();
+    if (idleScheduled) {
+      Looper.myQueue().removeIdleHandler(this);
+      idleScheduled = false;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      callbacks.context.unregisterComponentCallbacks(callbacks);
+    }
+  }
+
+  /**
+   * Take a pooled view for the layout.
+   *
+   * @param layout
+   *     The layout resource being inflated.
+   * @param root
+   *     The root passed to {@code inflate}.
+   * @return A pooled view, or {@code null} if none is available and the layout should be inflated.
+   */
+  View acquire(int layout, ViewGroup root) {
+    if (warming || Looper.myLooper() != Looper.getMainLooper()) {
+      return null;
+    }
+    Entry entry = entries.get(layout);
+    if (entry == null || entry.parentClass != classOf(root)) {
+      return null;
+    }
+    View view = entry.views.poll();
+    trimmed = false;
+    scheduleIdle();
+    return view;
+  }
+
+  @Override public boolean queueIdle() {
+    if (trimmed) {
+      idleScheduled = false;
+      return false;
+    }
+    for (int i = 0, size = entries.size(); i < size; i++) {
+      Entry entry = entries.valueAt(i);
+      if (entry.views.size() < entry.capacity) {
+        ViewGroup parent = entry.parent.get();
+        if (parent == null && entry.parentClass != null) {
+          // The parent is gone, so are the views it would have been added to.
+          entry.capacity = 0;
+          entry.views.clear();
+          continue;
+        }
+        View view;
+        warming = true;
+        try {
+          view = inflater.inflate(entries.keyAt(i), parent, false);
+        } finally {
+          warming = false;
+        }
+        entry.views.add(view);
+        // Inflate one view per idle pass so a new frame is never delayed by more than one inflation.
+        return true;
+      }
+    }
+    idleScheduled = false;
+    return false;
+  }
+
+  private void scheduleIdle() {
+    if (!idleScheduled) {
+      idleScheduled = true;
+      Looper.myQueue().addIdleHandler(this);
+    }
+  }
+
+  private static Class<?> classOf(ViewGroup parent) {
+    return parent == null ? null : parent.getClass();
+  }
+
+  private static class Entry {
+
+    final WeakReference<ViewGroup> parent;
+    final Class<?> parentClass;
+    final ArrayDeque<View> views = new ArrayDeque<>();
+    int capacity;
+
+    Entry(ViewGroup parent) {
+      this.parent = new WeakReference<>(parent);
+      this.parentClass = classOf(parent);
+    }
+
+    void trimToCapacity() {
+      while (views.size() > capacity) {
+        views.removeLast();
+      }
+    }
+
+  }
+
+  /**
+   * Registered with the application instead of the pool itself, so the application doesn't keep the pool, its
+   * inflater and its views (and with them the Activity) alive.
+   */
+  private static class TrimCallbacks implements ComponentCallbacks2 {
+
+    final WeakReference<ViewPool> pool;
+    final Context context;
+
+    TrimCallbacks(ViewPool pool, Context context) {
+      this.pool = new WeakReference<>(pool);
+      this.context = context;
+    }
+
+    @Override public void onTrimMemory(int level) {
+      // RUNNING_LOW and RUNNING_CRITICAL are sent while the app is in the foreground and the device runs out of
+      // memory. UI_HIDDEN (20) and BACKGROUND (40) only mean the app went to the background, and the pool is kept so
+      // coming back is fast. From MODERATE on the process is likely to be killed, so the views are released.
+      if (level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_MODERATE) {
+        clearPool();
+      }
+    }
+
+    @Override public void onConfigurationChanged(Configuration newConfig) {
+      // Pooled views were inflated with the old resources.
+      clearPool();
+    }
+
+    @Override public void onLowMemory() {
+      clearPool();
+    }
+
+    private void clearPool() {
+      ViewPool pool = this.pool.get();
+      if (pool != null) {
+        pool.clear();
+      } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+        context.unregisterComponentCallbacks(this);
+      }
+    }
+
+  }
+
+}
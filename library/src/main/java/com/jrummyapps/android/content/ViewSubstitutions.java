@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Replacements for views that the inflater creates instead of the view named in the layout. Unlike returning a
+ * different view from {@link ObservableViewFactory#onViewCreated(View, AttributeSet)}, the original view is never
+ * constructed, so its constructor and style resolution are not paid for twice. The replacement is created through a
+ * cached constructor and then decorated like any other view.</p>
+ *
+ * <pre>
+ * ViewSubstitutions substitutions = new ViewSubstitutions.Builder()
+ *     .add(TextView.class, BrandTextView.class)
+ *     .add("com.example.LegacyButton", BrandButton.class)
+ *     .build();
+ * </pre>
+ *
+ * <p>Substitutions are checked before any factory is asked to create the view. While substitutions are set the
+ * inflater installs its own private factory, so custom views are substituted too, even in an inflater that has no
+ * factories and no Activity as its context. Views that are created from code are not substituted.</p>
+ */
+public final class ViewSubstitutions {
+
+  /**
+   * Decides per tag whether a view should be replaced, e.g. based on its attributes.
+   */
+  public interface Rule {
+
+    /**
+     * @param name
+     *     The tag name as written in the layout, e.g. "TextView" or "com.example.CustomView".
+     * @param attrs
+     *     The attributes of the tag. Only valid during this call.
+     * @return The class to create instead, or {@code null} to keep the view. The class needs a public constructor
+     * taking a {@link android.content.Context} and an {@link AttributeSet}.
+     */
+    @Nullable Class<? extends View> substitute(@NonNull String name, @NonNull AttributeSet attrs);
+
+  }
+
+  private static final String[] FRAMEWORK_PACKAGES = {"android.widget.", "android.webkit.", "android.view."};
+
+  private final Map<String, Class<? extends View>> byName;
+  private final Rule[] rules;
+
+  ViewSubstitutions(Map<String, Class<? extends View>> byName, Rule[] rules) {
+    this.byName = byName;
+    this.rules = rules;
+  }
+
+  /**
+   * Find the replacement for a tag.
+   *
+   * @return The class to create instead, or {@code null}.
+   */
+  @Nullable Class<? extends View> find(String name, AttributeSet attrs) {
+    Class<? extends View> replacement = byName.get(name);
+    if (replacement != null) {
+      return replacement;
+    }
+    for (Rule rule : rules) {
+      replacement = rule.substitute(name, attrs);
+      if (replacement != null) {
+        return replacement;
+      }
+    }
+    return null;
+  }
+
+  public static final class Builder {
+
+    private final Map<String, Class<? extends View>> byName = new HashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * Replace every tag with the given name.
+     *
+     * @param name
+     *     The tag name as written in the layout, e.g. "TextView" or "com.example.CustomView".
+     * @param replacement
+     *     The class to create instead.
+     * @return This object for chaining method calls
+     */
+    public Builder add(@NonNull String name, @NonNull Class<? extends View> replacement) {
+      checkConstructor(replacement);
+      byName.put(name, replacement);
+      return this;
+    }
+
+    /**
+     * Replace every tag that names the given class. Classes in {@code android.widget}, {@code android.webkit} and
+     * {@code android.view} also match their short tag name.
+     *
+     * @param original
+     *     The class named in the layout.
+     * @param replacement
+     *     The class to create instead.
+     * @return This object for chaining method calls
+     */
+    public Builder add(@NonNull Class<? extends View> original, @NonNull Class<? extends View> replacement) {
+      String name = original.getName();
+      add(name, replacement);
+      for (String prefix : FRAMEWORK_PACKAGES) {
+        if (name.startsWith(prefix) && name.indexOf('.', prefix.length()) == -1) {
+          byName.put(name.substring(prefix.length()), replacement);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Add a rule that is asked for every tag that isn't replaced by name. Rules are asked in the order they were
+     * added.
+     *
+     * @param rule
+     *     The rule
+     * @return This object for chaining method calls
+     */
+    public Builder add(@NonNull Rule rule) {
+      rules.add(rule);
+      return this;
+    }
+
+    /**
+     * @return The substitutions, to be passed to
+     * {@link ObservableContextWrapper.Builder#setViewSubstitutions(ViewSubstitutions)}.
+     */
+    @NonNull public ViewSubstitutions build() {
+      return new ViewSubstitutions(new HashMap<>(byName), rules.toArray(new Rule[rules.size()]));
+    }
+
+    private static void checkConstructor(Class<? extends View> replacement) {
+      try {
+        ConstructorCache.get(replacement);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException(replacement.getName() + " has no (Context, AttributeSet) constructor", e);
+      }
+    }
+
+  }
+
+}
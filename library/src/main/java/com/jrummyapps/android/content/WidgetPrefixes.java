@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache from a short tag name (e.g. "TextView") to the package prefix its class lives in. Each tag is
+ * resolved once per class loader, including tags that aren't found in any prefix, so inflation never has to throw
+ * and catch a {@link ClassNotFoundException} to find a widget. Class loaders don't share entries, so a class missing
+ * from one loader is still found in another.
+ */
+final class WidgetPrefixes {
+
+  /** Cached for tags that aren't in any of the prefixes and are left to {@code LayoutInflater}. */
+  private static final String UNRESOLVED = "";
+
+  /** The resolved tags per class loader. The loaders are weakly referenced. Guarded by itself. */
+  private static final Map<ClassLoader, ConcurrentHashMap<String, String>> RESOLVED = new WeakHashMap<>();
+
+  /** The tags of the class loader used last, so inflating with one loader doesn't lock. */
+  private static volatile LoaderCache last;
+
+  private static volatile String[] prefixes = {"android.widget.", "android.webkit."};
+
+  /**
+   * Get the prefix for a short tag name.
+   *
+   * @param name
+   *     The tag name, without a package
+   * @param classLoader
+   *     The class loader used to look up the class the first time the tag is seen
+   * @return The prefix of the first package that contains the class, or {@code null} if none of them do.
+   */
+  static String resolve(String name, ClassLoader classLoader) {
+    ConcurrentHashMap<String, String> resolved = resolvedFor(classLoader);
+    String prefix = resolved.get(name);
+    if (prefix == null) {
+      prefix = UNRESOLVED;
+      for (String candidate : prefixes) {
+        try {
+          Class.forName(candidate + name, false, classLoader);
+          prefix = candidate;
+          break;
+        } catch (ClassNotFoundException ignored) {
+        }
+      }
+      resolved.put(name, prefix);
+    }
+    return prefix == UNRESOLVED ? null : prefix;
+  }
+
+  private static ConcurrentHashMap<String, String> resolvedFor(ClassLoader classLoader) {
+    LoaderCache cache = last;
+    if (cache != null && cache.classLoader.get() == classLoader) {
+      return cache.resolved;
+    }
+    synchronized (RESOLVED) {
+      ConcurrentHashMap<String, String> resolved = RESOLVED.get(classLoader);
+      if (resolved == null) {
+        resolved = new ConcurrentHashMap<>();
+        RESOLVED.put(classLoader, resolved);
+      }
+      last = new LoaderCache(classLoader, resolved);
+      return resolved;
+    }
+  }
+
+  /**
+   * Add package prefixes that short tag names are looked up in, after the ones already registered.
+   *
+   * @param newPrefixes
+   *     The package prefixes, including the trailing '.'
+   */
+  static synchronized void add(String... newPrefixes) {
+    List<String> updated = new ArrayList<>(Arrays.asList(prefixes));
+    for (String prefix : newPrefixes) {
+      if (!prefix.endsWith(".")) {
+        prefix += ".";
+      }
+      if (!updated.contains(prefix)) {
+        updated.add(prefix);
+      }
+    }
+    prefixes = updated.toArray(new String[updated.size()]);
+    synchronized (RESOLVED) {
+      RESOLVED.clear();
+      last = null;
+    }
+  }
+
+  private WidgetPrefixes() {
+    throw new AssertionError("no instances");
+  }
+
+  private static final class LoaderCache {
+
+    final WeakReference<ClassLoader> classLoader;
+    final ConcurrentHashMap<String, String> resolved;
+
+    LoaderCache(ClassLoader classLoader, ConcurrentHashMap<String, String> resolved) {
+      this.classLoader = new WeakReference<>(classLoader);
+      this.resolved = resolved;
+    }
+
+  }
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+/**
+ * <p>An {@link AttrsDecorator} declared as a list of setters, one per attribute of its styleable. The setters are kept
+ * in an array indexed by the attribute's index in the styleable, and only the setters of attributes that have a value
+ * are called, in a single pass over the resolved attributes. No getter is called for an attribute that isn't set.</p>
+ *
+ * <pre>
+ * Decorator decorator = new AttributeBinder.Builder&lt;&gt;(TextView.class, R.styleable.FontDecorator)
+ *     .bindString(R.styleable.FontDecorator_decorTypefaceAsset,
+ *         new AttributeBinder.ValueSetter&lt;TextView, String&gt;() {
+ *           &#64;Override public void set(TextView view, String path) {
+ *             view.setTypeface(Typeface.createFromAsset(view.getContext().getAssets(), path));
+ *           }
+ *         })
+ *     .setAttributeFilter(AttrsDecorator.FILTER_ATTRIBUTES)
+ *     .build();
+ * </pre>
+ *
+ * <p>Binders are {@link #isMergeable() mergeable}, so the attributes of several binders for the same view are resolved
+ * with one {@code obtainStyledAttributes} call (see {@link CompositeAttrsDecorator}). Subclass this class to implement
+ * other interfaces, like {@link ScheduledDecorator}, and pass the builder to the constructor.</p>
+ *
+ * @param <T>
+ *     The type or parent type of View that this binder applies to.
+ */
+public class AttributeBinder<T extends View> extends AttrsDecorator<T> {
+
+  private static final byte KIND_RAW = 1;
+  private static final byte KIND_STRING = 2;
+  private static final byte KIND_TEXT = 3;
+  private static final byte KIND_BOOLEAN = 4;
+  private static final byte KIND_INT = 5;
+  private static final byte KIND_FLOAT = 6;
+  private static final byte KIND_COLOR = 7;
+  private static final byte KIND_COLOR_STATE_LIST = 8;
+  private static final byte KIND_DIMENSION = 9;
+  private static final byte KIND_DIMENSION_PIXEL_SIZE = 10;
+  private static final byte KIND_RESOURCE_ID = 11;
+  private static final byte KIND_DRAWABLE = 12;
+
+  /**
+   * Reads an attribute itself.
+   */
+  public interface Setter<T extends View> {
+
+    /**
+     * @param view
+     *     The view being decorated.
+     * @param attributes
+     *     The resolved attributes. Must not be kept.
+     * @param index
+     *     The index of the attribute in the binder's styleable. It always has a value.
+     */
+    void set(@NonNull T view, @NonNull StyledAttributes attributes, int index);
+
+  }
+
+  /**
+   * Receives the value of an attribute as an object.
+   */
+  public interface ValueSetter<T extends View, V> {
+
+    void set(@NonNull T view, @Nullable V value);
+
+  }
+
+  /**
+   * Receives the value of an attribute as an {@code int}: integers, colors, pixel sizes and resource IDs.
+   */
+  public interface IntSetter<T extends View> {
+
+    void set(@NonNull T view, int value);
+
+  }
+
+  /**
+   * Receives the value of an attribute as a {@code float}: floats and dimensions.
+   */
+  public interface FloatSetter<T extends View> {
+
+    void set(@NonNull T view, float value);
+
+  }
+
+  /**
+   * Receives the value of a boolean attribute.
+   */
+  public interface BooleanSetter<T extends View> {
+
+    void set(@NonNull T view, boolean value);
+
+  }
+
+  private final Class<T> clazz;
+  private final int[] styleable;
+  private final byte[] kinds;
+  private final Object[] setters;
+  private final int attributeFilter;
+  private final int defStyleAttr;
+  private final int defStyleRes;
+
+  /**
+   * @param builder
+   *     The builder with the setters. It can be reused; later changes don't affect this binder.
+   */
+  protected AttributeBinder(@NonNull Builder<T> builder) {
+    this.clazz = builder.clazz;
+    this.styleable = builder.styleable;
+    this.kinds = builder.kinds.clone();
+    this.setters = builder.setters.clone();
+    this.attributeFilter = builder.attributeFilter;
+    this.defStyleAttr = builder.defStyleAttr;
+    this.defStyleRes = builder.defStyleRes;
+  }
+
+  @Override protected final void apply(@NonNull T view, @NonNull StyledAttributes attributes) {
+    byte[] kinds = this.kinds;
+    for (int i = 0, count = attributes.getIndexCount(); i < count; i++) {
+      int index = attributes.getIndex(i);
+      if (kinds[index] != 0) {
+        bind(view, attributes, index, kinds[index], setters[index]);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends View> void bind(T view, StyledAttributes attributes, int index, byte kind,
+                                            Object setter) {
+    switch (kind) {
+      case KIND_RAW:
+        ((Setter<T>) setter).set(view, attributes, index);
+        break;
+      case KIND_STRING:
+        ((ValueSetter<T, String>) setter).set(view, attributes.getString(index));
+        break;
+      case KIND_TEXT:
+        ((ValueSetter<T, CharSequence>) setter).set(view, attributes.getText(index));
+        break;
+      case KIND_BOOLEAN:
+        ((BooleanSetter<T>) setter).set(view, attributes.getBoolean(index, false));
+        break;
+      case KIND_INT:
+        ((IntSetter<T>) setter).set(view, attributes.getInt(index, 0));
+        break;
+      case KIND_FLOAT:
+        ((FloatSetter<T>) setter).set(view, attributes.getFloat(index, 0));
+        break;
+      case KIND_COLOR:
+        ((IntSetter<T>) setter).set(view, attributes.getColor(index, 0));
+        break;
+      case KIND_COLOR_STATE_LIST:
+        ((ValueSetter<T, ColorStateList>) setter).set(view, attributes.getColorStateList(index));
+        break;
+      case KIND_DIMENSION:
+        ((FloatSetter<T>) setter).set(view, attributes.getDimension(index, 0));
+        break;
+      case KIND_DIMENSION_PIXEL_SIZE:
+        ((IntSetter<T>) setter).set(view, attributes.getDimensionPixelSize(index, 0));
+        break;
+      case KIND_RESOURCE_ID:
+        ((IntSetter<T>) setter).set(view, attributes.getResourceId(index, 0));
+        break;
+      case KIND_DRAWABLE:
+        ((ValueSetter<T, Drawable>) setter).set(view, attributes.getDrawable(index));
+        break;
+    }
+  }
+
+  @Override protected final boolean isMergeable() {
+    return true;
+  }
+
+  @NonNull @Override protected final Class<T> clazz() {
+    return clazz;
+  }
+
+  @Override protected final int[] styleable() {
+    return styleable;
+  }
+
+  @Override protected int defStyleAttr() {
+    return defStyleAttr;
+  }
+
+  @Override protected int defStyleRes() {
+    return defStyleRes;
+  }
+
+  @Override protected int attributeFilter() {
+    return attributeFilter;
+  }
+
+  /**
+   * Builds an {@link AttributeBinder}. Each attribute of the styleable can be bound once.
+   *
+   * @param <T>
+   *     The type or parent type of View that the binder applies to.
+   */
+  public static class Builder<T extends View> {
+
+    final Class<T> clazz;
+    final int[] styleable;
+    final byte[] kinds;
+    final Object[] setters;
+    int attributeFilter = FILTER_NONE;
+    int defStyleAttr;
+    int defStyleRes;
+
+    /**
+     * @param clazz
+     *     The type of view the binder applies to.
+     * @param styleable
+     *     The attributes, usually an {@code R.styleable} array.
+     */
+    public Builder(@NonNull Class<T> clazz, @NonNull int[] styleable) {
+      this.clazz = clazz;
+      this.styleable = styleable.clone();
+      this.kinds = new byte[styleable.length];
+      this.setters = new Object[styleable.length];
+    }
+
+    /**
+     * Bind an attribute to a setter that reads the value itself.
+     *
+     * @param index
+     *     The index of the attribute in the styleable, usually an {@code R.styleable} constant.
+     * @return This object for chaining method calls
+     */
+    public Builder<T> bind(int index, @NonNull Setter<T> setter) {
+      return put(index, KIND_RAW, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getString(int)
+     */
+    public Builder<T> bindString(int index, @NonNull ValueSetter<T, String> setter) {
+      return put(index, KIND_STRING, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getText(int)
+     */
+    public Builder<T> bindText(int index, @NonNull ValueSetter<T, CharSequence> setter) {
+      return put(index, KIND_TEXT, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getBoolean(int, boolean)
+     */
+    public Builder<T> bindBoolean(int index, @NonNull BooleanSetter<T> setter) {
+      return put(index, KIND_BOOLEAN, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getInt(int, int)
+     */
+    public Builder<T> bindInt(int index, @NonNull IntSetter<T> setter) {
+      return put(index, KIND_INT, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getFloat(int, float)
+     */
+    public Builder<T> bindFloat(int index, @NonNull FloatSetter<T> setter) {
+      return put(index, KIND_FLOAT, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getColor(int, int)
+     */
+    public Builder<T> bindColor(int index, @NonNull IntSetter<T> setter) {
+      return put(index, KIND_COLOR, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getColorStateList(int)
+     */
+    public Builder<T> bindColorStateList(int index, @NonNull ValueSetter<T, ColorStateList> setter) {
+      return put(index, KIND_COLOR_STATE_LIST, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getDimension(int, float)
+     */
+    public Builder<T> bindDimension(int index, @NonNull FloatSetter<T> setter) {
+      return put(index, KIND_DIMENSION, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getDimensionPixelSize(int, int)
+     */
+    public Builder<T> bindDimensionPixelSize(int index, @NonNull IntSetter<T> setter) {
+      return put(index, KIND_DIMENSION_PIXEL_SIZE, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getResourceId(int, int)
+     */
+    public Builder<T> bindResourceId(int index, @NonNull IntSetter<T> setter) {
+      return put(index, KIND_RESOURCE_ID, setter);
+    }
+
+    /**
+     * @see StyledAttributes#getDrawable(int)
+     */
+    public Builder<T> bindDrawable(int index, @NonNull ValueSetter<T, Drawable> setter) {
+      return put(index, KIND_DRAWABLE, setter);
+    }
+
+    /**
+     * @param attributeFilter
+     *     One of {@link AttrsDecorator#FILTER_NONE}, {@link AttrsDecorator#FILTER_ATTRIBUTES} or
+     *     {@link AttrsDecorator#FILTER_ATTRIBUTES_AND_STYLES}.
+     * @return This object for chaining method calls
+     * @see AttrsDecorator#attributeFilter()
+     */
+    public Builder<T> setAttributeFilter(@AttributeFilter int attributeFilter) {
+      if (attributeFilter < FILTER_NONE || attributeFilter > FILTER_ATTRIBUTES_AND_STYLES) {
+        throw new IllegalArgumentException("Unknown attribute filter: " + attributeFilter);
+      }
+      this.attributeFilter = attributeFilter;
+      return this;
+    }
+
+    /**
+     * @return This object for chaining method calls
+     * @see AttrsDecorator#defStyleAttr()
+     */
+    public Builder<T> setDefStyleAttr(int defStyleAttr) {
+      this.defStyleAttr = defStyleAttr;
+      return this;
+    }
+
+    /**
+     * @return This object for chaining method calls
+     * @see AttrsDecorator#defStyleRes()
+     */
+    public Builder<T> setDefStyleRes(int defStyleRes) {
+      this.defStyleRes = defStyleRes;
+      return this;
+    }
+
+    /**
+     * @return The binder.
+     */
+    public AttributeBinder<T> build() {
+      return new AttributeBinder<>(this);
+    }
+
+    private Builder<T> put(int index, byte kind, Object setter) {
+      if (index < 0 || index >= kinds.length) {
+        throw new IndexOutOfBoundsException("No attribute at index " + index + " of the styleable");
+      }
+      if (kinds[index] != 0) {
+        throw new IllegalStateException("The attribute at index " + index + " is already bound");
+      }
+      if (setter == null) {
+        throw new NullPointerException("setter == null");
+      }
+      kinds[index] = kind;
+      setters[index] = setter;
+      return this;
+    }
+
+  }
+
+}
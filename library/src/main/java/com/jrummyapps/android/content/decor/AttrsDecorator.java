@@ -18,56 +18,222 @@ package com.jrummyapps.android.content.decor;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.View;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+
 /**
  * A base class for a decorator that transform certain View subtypes with certain attributes. Useful when you want to
  * extend standard layout inflation to add your own attributes to system widgets. If a view with type {@code View&lt;
  * ? extends T&gt;} is inflated and it has one of the attributes returned in {@link AttrsDecorator#styleable()} ()}
  * method then {@link AttrsDecorator#apply(View, TypedArray)} will be invoked for that view.
  *
+ * <p>By default the attributes are resolved against the theme for every matching view. Override
+ * {@link #attributeFilter()} to check the raw {@link AttributeSet} first and skip views that can't have any of the
+ * attributes set.</p>
+ *
+ * <p>Decorators that return {@code true} from {@link #isMergeable()} receive their attributes through
+ * {@link #apply(View, StyledAttributes)}. When several of them apply to the same view and use the same
+ * {@link #defStyleAttr()} and {@link #defStyleRes()}, the inflater resolves their styleables with a single
+ * {@code obtainStyledAttributes} call. See {@link CompositeAttrsDecorator}.</p>
+ *
+ * <p>Decorators that implement {@link ScheduledDecorator} or {@link MainThreadDecorator} also receive their attributes
+ * through {@link #apply(View, StyledAttributes)}. A {@link TypedArray} can't be kept past inflation, so deferred
+ * decorators get a copy of the values that is read during inflation. When such a decorator runs right away the default
+ * {@link #apply(View, StyledAttributes)} passes the {@link TypedArray} on to
+ * {@link #apply(View, TypedArray, int[], int)}, so a decorator that is never deferred may override the
+ * {@link TypedArray} variants instead.</p>
+ *
  * @param <T>
  *     The type or parent type of View that this decorator applies to.
  */
-public abstract class AttrsDecorator<T extends View> implements Decorator {
+public abstract class AttrsDecorator<T extends View> implements TargetedDecorator, DeferrableDecorator {
+
+  /**
+   * Always resolve the attributes against the theme. This is the default.
+   */
+  public static final int FILTER_NONE = 0;
+
+  /**
+   * Only resolve the attributes if the tag declares one of the attributes in {@link #styleable()}. Values that would
+   * only come from a style or from the theme are ignored.
+   */
+  public static final int FILTER_ATTRIBUTES = 1;
+
+  /**
+   * Like {@link #FILTER_ATTRIBUTES} but the attributes are also resolved when the tag has a {@code style} attribute,
+   * when {@link #defStyleRes()} is set or when {@link #defStyleAttr()} resolves in the view's theme.
+   */
+  public static final int FILTER_ATTRIBUTES_AND_STYLES = 2;
+
+  @IntDef({FILTER_NONE, FILTER_ATTRIBUTES, FILTER_ATTRIBUTES_AND_STYLES})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface AttributeFilter {
+
+  }
+
+  private static final ThreadLocal<TypedValue> TYPED_VALUE = new ThreadLocal<TypedValue>() {
+
+    @Override protected TypedValue initialValue() {
+      return new TypedValue();
+    }
+
+  };
+
+  private volatile int[] sortedStyleable;
+
+  /** {@code true} if the decorator may be applied after inflation, see {@link #prepare(View, AttributeSet)}. */
+  private final boolean deferrable = this instanceof ScheduledDecorator || this instanceof MainThreadDecorator;
 
   @Override public void apply(@NonNull View view, @NonNull AttributeSet attributeSet) {
-    if (!clazz().isAssignableFrom(view.getClass())) {
+    TypedArray values = obtainMatchingAttributes(view, attributeSet);
+    if (values == null) {
       return;
     }
 
-    TypedArray values = obtainAttributes(view.getContext(), attributeSet);
-    if (values == null || values.length() == 0) {
+    if (isMergeable() || deferrable) {
+      try {
+        applyStyled(view, values);
+      } finally {
+        values.recycle();
+      }
       return;
     }
 
+    Scratch scratch = null;
     try {
-      for (int i = 0; i < values.length(); i++) {
-        TypedValue buf = new TypedValue();
-        if (values.hasValue(i) && values.getValue(i, buf)) {
-          //noinspection unchecked
-          apply((T) view, values);
-          break;
-        }
+      int count = values.getIndexCount();
+      if (count == 0) {
+        return;
+      }
+      scratch = Scratch.obtain();
+      int[] setIndices = scratch.setIndices(count);
+      for (int i = 0; i < count; i++) {
+        setIndices[i] = values.getIndex(i);
       }
+      //noinspection unchecked
+      apply((T) view, values, setIndices, count);
     } finally {
       values.recycle();
+      if (scratch != null) {
+        scratch.release();
+      }
     }
   }
 
+  /**
+   * Resolve the attributes now and copy their values, then recycle the {@link TypedArray}. The copy is passed to
+   * {@link #apply(View, StyledAttributes)} when the returned {@link Runnable} is run.
+   */
+  @Nullable @Override public Runnable prepare(@NonNull View view, @NonNull AttributeSet attributeSet) {
+    TypedArray values = obtainMatchingAttributes(view, attributeSet);
+    if (values == null) {
+      return null;
+    }
+    final StyledAttributes attributes;
+    try {
+      attributes = StyledAttributes.copyOf(values, view.getContext().getTheme());
+    } finally {
+      values.recycle();
+    }
+    if (attributes.getIndexCount() == 0) {
+      return null;
+    }
+    final View target = view;
+    return new Runnable() {
+
+      @Override public void run() {
+        applyStyled(target, attributes);
+      }
+
+    };
+  }
+
+  @NonNull @Override public Class<?>[] targetTypes() {
+    return new Class<?>[]{clazz()};
+  }
+
   /**
    * This method will be called if a View of type T was inflated and it had one of the attributes specified by
-   * {@link AttrsDecorator#styleable()} set.
+   * {@link AttrsDecorator#styleable()} set. Subclasses override either this method or
+   * {@link #apply(View, TypedArray, int[], int)}. The default implementation throws, so a decorator that overrides
+   * neither fails on the first view instead of silently doing nothing.
    *
    * @param view
    *     The view object that is being decorated.
    * @param typedArray
    *     A {@link TypedArray} for attributes.
+   * @throws IllegalStateException
+   *     if neither this method nor {@link #apply(View, TypedArray, int[], int)} is overridden.
+   */
+  protected void apply(@NonNull T view, @NonNull TypedArray typedArray) {
+    throw new IllegalStateException(getClass().getName()
+        + " must override apply(View, TypedArray) or apply(View, TypedArray, int[], int)");
+  }
+
+  /**
+   * This method will be called if a View of type T was inflated and it had one of the attributes specified by
+   * {@link AttrsDecorator#styleable()} set. Only the first {@code count} entries of {@code setIndices} are valid and
+   * the array is reused once this method returns, so it must not be kept.
+   *
+   * <p>The default implementation calls {@link #apply(View, TypedArray)}.</p>
+   *
+   * @param view
+   *     The view object that is being decorated.
+   * @param typedArray
+   *     A {@link TypedArray} for attributes.
+   * @param setIndices
+   *     The indices in {@link #styleable()} that have a value, as returned by {@link TypedArray#getIndex(int)}.
+   * @param count
+   *     The number of valid entries in {@code setIndices}.
+   */
+  protected void apply(@NonNull T view, @NonNull TypedArray typedArray, @NonNull int[] setIndices, int count) {
+    apply(view, typedArray);
+  }
+
+  /**
+   * This method will be called instead of the {@link TypedArray} variants if this decorator is
+   * {@link #isMergeable() mergeable}, a {@link ScheduledDecorator} or a {@link MainThreadDecorator}, and the view has
+   * one of the attributes in {@link #styleable()} set. Decorators that are merged or deferred must override it.
+   *
+   * <p>The default implementation calls {@link #apply(View, TypedArray, int[], int)} if the attributes are backed by
+   * the decorator's own {@link TypedArray}, i.e. the decorator was neither merged nor deferred, and throws
+   * otherwise.</p>
+   *
+   * @param view
+   *     The view object that is being decorated.
+   * @param attributes
+   *     The attributes, indexed by {@link #styleable()}.
+   * @throws IllegalStateException
+   *     if this method is not overridden and the decorator was merged or deferred.
+   */
+  protected void apply(@NonNull T view, @NonNull StyledAttributes attributes) {
+    TypedArray typedArray = attributes.typedArray();
+    if (typedArray == null) {
+      throw new IllegalStateException(getClass().getName()
+          + " is mergeable or deferred and must override apply(View, StyledAttributes)");
+    }
+    apply(view, typedArray, attributes.setIndices(), attributes.getIndexCount());
+  }
+
+  /**
+   * Whether this decorator's attributes may be resolved together with those of other mergeable decorators. A
+   * mergeable decorator must override {@link #apply(View, StyledAttributes)}; {@link #obtainAttributes(Context,
+   * AttributeSet)} is not called when it is merged.
+   *
+   * @return {@code true} to receive attributes through {@link #apply(View, StyledAttributes)}. {@code false} by
+   * default.
    */
-  protected abstract void apply(@NonNull T view, @NonNull TypedArray typedArray);
+  protected boolean isMergeable() {
+    return false;
+  }
 
   /**
    * The class for the given view
@@ -103,6 +269,152 @@ public abstract class AttrsDecorator<T extends View> implements Decorator {
     return 0;
   }
 
+  /**
+   * How the raw {@link AttributeSet} is checked before the attributes are resolved against the theme.
+   *
+   * @return One of {@link #FILTER_NONE}, {@link #FILTER_ATTRIBUTES} or {@link #FILTER_ATTRIBUTES_AND_STYLES}.
+   */
+  @AttributeFilter protected int attributeFilter() {
+    return FILTER_NONE;
+  }
+
+  /**
+   * Check if this decorator only looks at attributes declared on the tag (see {@link #FILTER_ATTRIBUTES}) and all of
+   * its attributes are in the given set. The inflater uses this to skip the decorator for tags that a
+   * {@link com.jrummyapps.android.content.DecorationTable} says declare none of the attributes.
+   *
+   * @param sortedAttributes
+   *     Attribute resource IDs, sorted.
+   * @return {@code true} if the decorator can be skipped for tags that declare none of the attributes.
+   */
+  public final boolean isCoveredBy(@NonNull int[] sortedAttributes) {
+    if (attributeFilter() != FILTER_ATTRIBUTES) {
+      return false;
+    }
+    for (int attr : sortedStyleable()) {
+      if (Arrays.binarySearch(sortedAttributes, attr) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if this decorator does nothing for a view only because of its class or because the tag declares none of the
+   * attributes while the {@link #attributeFilter()} is {@link #FILTER_ATTRIBUTES}. The answer is the same every time
+   * the same tag creates a view of the same class, so the inflater may remember it (see
+   * {@link com.jrummyapps.android.content.LayoutReplayCache}).
+   *
+   * @param view
+   *     The view being decorated.
+   * @param attributeSet
+   *     The attributes of the tag.
+   * @return {@code true} if the decorator can be skipped whenever the tag creates a view of the same class.
+   */
+  public final boolean isSkippedFor(@NonNull View view, @NonNull AttributeSet attributeSet) {
+    if (!clazz().isAssignableFrom(view.getClass())) {
+      return true;
+    }
+    return attributeFilter() == FILTER_ATTRIBUTES && !hasDeclaredAttribute(attributeSet);
+  }
+
+  /**
+   * Check if the tag declares one of the attributes in {@link #styleable()} without resolving anything.
+   *
+   * @param attributeSet
+   *     A read-only set of tag attributes.
+   * @return {@code true} if one of the attribute names matches an attribute in {@link #styleable()}.
+   */
+  boolean hasDeclaredAttribute(AttributeSet attributeSet) {
+    int[] styleable = sortedStyleable();
+    for (int i = 0, count = attributeSet.getAttributeCount(); i < count; i++) {
+      int nameResource = attributeSet.getAttributeNameResource(i);
+      if (nameResource != 0 && Arrays.binarySearch(styleable, nameResource) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check the view type and the attribute filter, then resolve the attributes.
+   *
+   * @return The resolved attributes, or {@code null} if the view is skipped.
+   */
+  private TypedArray obtainMatchingAttributes(View view, AttributeSet attributeSet) {
+    if (!matches(view, attributeSet)) {
+      return null;
+    }
+    return obtainAttributes(view.getContext(), attributeSet);
+  }
+
+  /**
+   * Check the view type and the attribute filter without resolving anything.
+   *
+   * @return {@code true} if the attributes should be resolved for the view.
+   */
+  boolean matches(View view, AttributeSet attributeSet) {
+    if (!clazz().isAssignableFrom(view.getClass())) {
+      return false;
+    }
+    int filter = attributeFilter();
+    if (filter != FILTER_NONE && !hasDeclaredAttribute(attributeSet)) {
+      if (filter == FILTER_ATTRIBUTES || !mayHaveStyledValue(view.getContext(), attributeSet)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply attributes that were resolved for {@link #styleable()} as is.
+   */
+  private void applyStyled(View view, TypedArray values) {
+    int count = values.getIndexCount();
+    if (count == 0) {
+      return;
+    }
+    Scratch scratch = Scratch.obtain();
+    try {
+      int[] setIndices = scratch.setIndices(count);
+      for (int i = 0; i < count; i++) {
+        setIndices[i] = values.getIndex(i);
+      }
+      applyStyled(view, scratch.attributes.set(values, null, setIndices, count));
+    } finally {
+      scratch.release();
+    }
+  }
+
+  /**
+   * Call {@link #apply(View, StyledAttributes)} for a view that already passed {@link #matches(View, AttributeSet)}.
+   */
+  void applyStyled(View view, StyledAttributes attributes) {
+    //noinspection unchecked
+    apply((T) view, attributes);
+  }
+
+  /**
+   * @return The attributes returned by {@link #styleable()}, sorted.
+   */
+  int[] sortedStyleable() {
+    int[] styleable = sortedStyleable;
+    if (styleable == null) {
+      styleable = styleable().clone();
+      Arrays.sort(styleable);
+      sortedStyleable = styleable;
+    }
+    return styleable;
+  }
+
+  private boolean mayHaveStyledValue(Context context, AttributeSet attributeSet) {
+    if (attributeSet.getStyleAttribute() != 0 || defStyleRes() != 0) {
+      return true;
+    }
+    int defStyleAttr = defStyleAttr();
+    return defStyleAttr != 0 && context.getTheme().resolveAttribute(defStyleAttr, TYPED_VALUE.get(), true);
+  }
+
   /**
    * Get the attributes
    *
@@ -116,4 +428,56 @@ public abstract class AttrsDecorator<T extends View> implements Decorator {
     return context.getTheme().obtainStyledAttributes(attributeSet, styleable(), defStyleAttr(), defStyleRes());
   }
 
+  /**
+   * The index arrays and {@link StyledAttributes} used while attributes are applied, kept per thread so decorating a
+   * view doesn't allocate. A decorator further up the stack (e.g. one that inflates views while it is applied) keeps
+   * its scratch until it is done, so nested decorators get a new one.
+   */
+  static final class Scratch {
+
+    private static final ThreadLocal<Scratch> CURRENT = new ThreadLocal<>();
+
+    final StyledAttributes attributes = new StyledAttributes();
+    private int[] setIndices = new int[16];
+    private int[] memberIndices = new int[16];
+
+    /**
+     * Take the calling thread's scratch, or create a new one if it is in use. Hand it back with {@link #release()}.
+     */
+    static Scratch obtain() {
+      Scratch scratch = CURRENT.get();
+      if (scratch == null) {
+        return new Scratch();
+      }
+      CURRENT.set(null);
+      return scratch;
+    }
+
+    void release() {
+      attributes.set(null, null, null, 0);
+      CURRENT.set(this);
+    }
+
+    /**
+     * @return An array for the indices that have a value in a resolved {@link TypedArray}.
+     */
+    int[] setIndices(int count) {
+      if (setIndices.length < count) {
+        setIndices = new int[Math.max(count, setIndices.length * 2)];
+      }
+      return setIndices;
+    }
+
+    /**
+     * @return An array for the indices in one decorator's styleable, see {@link CompositeAttrsDecorator}.
+     */
+    int[] memberIndices(int count) {
+      if (memberIndices.length < count) {
+        memberIndices = new int[Math.max(count, memberIndices.length * 2)];
+      }
+      return memberIndices;
+    }
+
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.content.res.TypedArray;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies several {@link AttrsDecorator#isMergeable() mergeable} {@link AttrsDecorator}s with one
+ * {@code obtainStyledAttributes} call. The decorators' styleables are merged into one sorted array that is resolved
+ * once per view, and each decorator gets a {@link StyledAttributes} that maps its own indices into the shared
+ * {@link TypedArray}.
+ *
+ * <p>The inflater merges decorators automatically with {@link #merge(Decorator[])} for every view class, so this
+ * class doesn't need to be used directly.</p>
+ */
+public final class CompositeAttrsDecorator implements Decorator {
+
+  /** The members of a composite are tracked with a bit mask. */
+  private static final int MAX_MEMBERS = 64;
+
+  /**
+   * Replace mergeable {@link AttrsDecorator}s that share a {@link AttrsDecorator#defStyleAttr()} and
+   * {@link AttrsDecorator#defStyleRes()} with a {@link CompositeAttrsDecorator}. Each composite takes the position of
+   * its first member. Decorators that are not mergeable or that implement {@link MainThreadDecorator} or
+   * {@link ScheduledDecorator} are kept as is.
+   *
+   * @param decorators
+   *     The decorators that apply to one view class, in the order they were registered.
+   * @return The decorators with mergeable ones combined, or {@code decorators} if nothing could be merged.
+   */
+  @NonNull public static Decorator[] merge(@NonNull Decorator[] decorators) {
+    List<List<AttrsDecorator<?>>> groups = new ArrayList<>();
+    for (Decorator decorator : decorators) {
+      if (isMergeable(decorator)) {
+        groupFor((AttrsDecorator<?>) decorator, groups).add((AttrsDecorator<?>) decorator);
+      }
+    }
+    boolean merged = false;
+    for (List<AttrsDecorator<?>> group : groups) {
+      merged |= group.size() > 1;
+    }
+    if (!merged) {
+      return decorators;
+    }
+
+    List<Decorator> result = new ArrayList<>(decorators.length);
+    for (Decorator decorator : decorators) {
+      if (!isMergeable(decorator)) {
+        result.add(decorator);
+        continue;
+      }
+      for (List<AttrsDecorator<?>> group : groups) {
+        if (group.get(0) == decorator) {
+          result.add(group.size() == 1 ? decorator : new CompositeAttrsDecorator(group));
+          break;
+        }
+      }
+    }
+    return result.toArray(new Decorator[result.size()]);
+  }
+
+  private static boolean isMergeable(Decorator decorator) {
+    return decorator instanceof AttrsDecorator
+        && !(decorator instanceof MainThreadDecorator)
+        && !(decorator instanceof ScheduledDecorator)
+        && ((AttrsDecorator<?>) decorator).isMergeable();
+  }
+
+  private static List<AttrsDecorator<?>> groupFor(AttrsDecorator<?> decorator, List<List<AttrsDecorator<?>>> groups) {
+    for (List<AttrsDecorator<?>> group : groups) {
+      AttrsDecorator<?> first = group.get(0);
+      if (group.size() < MAX_MEMBERS
+          && first.defStyleAttr() == decorator.defStyleAttr()
+          && first.defStyleRes() == decorator.defStyleRes()) {
+        return group;
+      }
+    }
+    List<AttrsDecorator<?>> group = new ArrayList<>();
+    groups.add(group);
+    return group;
+  }
+
+  private final AttrsDecorator<?>[] members;
+  private final int[] styleable;
+  private final int defStyleAttr;
+  private final int defStyleRes;
+
+  /** For each member, maps an index in its styleable to an index in {@link #styleable}. */
+  private final int[][] indexMaps;
+
+  /** For each member, maps an index in {@link #styleable} to an index in its styleable, or -1. */
+  private final int[][] memberIndices;
+
+  CompositeAttrsDecorator(List<AttrsDecorator<?>> members) {
+    this.members = members.toArray(new AttrsDecorator<?>[members.size()]);
+    this.defStyleAttr = this.members[0].defStyleAttr();
+    this.defStyleRes = this.members[0].defStyleRes();
+
+    int size = 0;
+    for (AttrsDecorator<?> member : this.members) {
+      size += member.sortedStyleable().length;
+    }
+    int[] all = new int[size];
+    int offset = 0;
+    for (AttrsDecorator<?> member : this.members) {
+      int[] sorted = member.sortedStyleable();
+      System.arraycopy(sorted, 0, all, offset, sorted.length);
+      offset += sorted.length;
+    }
+    Arrays.sort(all);
+    int unique = 0;
+    for (int i = 0; i < all.length; i++) {
+      if (i == 0 || all[i] != all[i - 1]) {
+        all[unique++] = all[i];
+      }
+    }
+    this.styleable = Arrays.copyOf(all, unique);
+
+    this.indexMaps = new int[this.members.length][];
+    this.memberIndices = new int[this.members.length][];
+    for (int m = 0; m < this.members.length; m++) {
+      int[] own = this.members[m].styleable();
+      int[] indexMap = new int[own.length];
+      int[] reverse = new int[unique];
+      Arrays.fill(reverse, -1);
+      for (int i = 0; i < own.length; i++) {
+        indexMap[i] = Arrays.binarySearch(styleable, own[i]);
+        reverse[indexMap[i]] = i;
+      }
+      indexMaps[m] = indexMap;
+      memberIndices[m] = reverse;
+    }
+  }
+
+  @Override public void apply(@NonNull View view, @NonNull AttributeSet attributeSet) {
+    apply(view, attributeSet, null);
+  }
+
+  /**
+   * Apply the members to a view and report the time each member takes.
+   *
+   * @param view
+   *     The view being decorated.
+   * @param attributeSet
+   *     The attributes of the tag.
+   * @param timer
+   *     Called after each member is applied, or {@code null}.
+   */
+  public void apply(@NonNull View view, @NonNull AttributeSet attributeSet, @Nullable MemberTimer timer) {
+    long mask = 0;
+    for (int m = 0; m < members.length; m++) {
+      if (members[m].matches(view, attributeSet)) {
+        mask |= 1L << m;
+      }
+    }
+    if (mask == 0) {
+      return;
+    }
+
+    TypedArray values = view.getContext().getTheme()
+        .obtainStyledAttributes(attributeSet, styleable, defStyleAttr, defStyleRes);
+    AttrsDecorator.Scratch scratch = null;
+    try {
+      int count = values.getIndexCount();
+      if (count == 0) {
+        return;
+      }
+      scratch = AttrsDecorator.Scratch.obtain();
+      int[] setIndices = scratch.setIndices(count);
+      for (int i = 0; i < count; i++) {
+        setIndices[i] = values.getIndex(i);
+      }
+      // Members are applied one after the other, so they take turns with the same index array and attributes.
+      int[] own = scratch.memberIndices(count);
+      for (int m = 0; m < members.length; m++) {
+        if ((mask & (1L << m)) == 0) {
+          continue;
+        }
+        int[] reverse = memberIndices[m];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+          int index = reverse[setIndices[i]];
+          if (index >= 0) {
+            own[n++] = index;
+          }
+        }
+        if (n == 0) {
+          continue;
+        }
+        if (timer == null) {
+          members[m].applyStyled(view, scratch.attributes.set(values, indexMaps[m], own, n));
+        } else {
+          long start = System.nanoTime();
+          members[m].applyStyled(view, scratch.attributes.set(values, indexMaps[m], own, n));
+          timer.onMemberApplied(members[m], view, start, System.nanoTime() - start);
+        }
+      }
+    } finally {
+      values.recycle();
+      if (scratch != null) {
+        scratch.release();
+      }
+    }
+  }
+
+  /**
+   * @param sortedAttributes
+   *     Attribute resource IDs, sorted.
+   * @return {@code true} if every member is {@link AttrsDecorator#isCoveredBy(int[]) covered} by the attributes.
+   */
+  public boolean isCoveredBy(@NonNull int[] sortedAttributes) {
+    for (AttrsDecorator<?> member : members) {
+      if (!member.isCoveredBy(sortedAttributes)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param view
+   *     The view being decorated.
+   * @param attributeSet
+   *     The attributes of the tag.
+   * @return {@code true} if every member {@link AttrsDecorator#isSkippedFor(View, AttributeSet) can be skipped} for
+   * the tag.
+   */
+  public boolean isSkippedFor(@NonNull View view, @NonNull AttributeSet attributeSet) {
+    for (AttrsDecorator<?> member : members) {
+      if (!member.isSkippedFor(view, attributeSet)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The decorators merged into this one.
+   */
+  @NonNull public AttrsDecorator<?>[] getMembers() {
+    return members.clone();
+  }
+
+  @Override public String toString() {
+    return "CompositeAttrsDecorator" + Arrays.toString(members);
+  }
+
+  /**
+   * Receives the time each member of a {@link CompositeAttrsDecorator} takes, so members can be measured like
+   * decorators that were not merged.
+   */
+  public interface MemberTimer {
+
+    /**
+     * Called after a member was applied to a view.
+     *
+     * @param member
+     *     The member that was applied.
+     * @param view
+     *     The view being decorated.
+     * @param start
+     *     The {@link System#nanoTime()} before the member was applied.
+     * @param nanos
+     *     The time the member took, in nanoseconds. The shared {@code obtainStyledAttributes} call is not included.
+     */
+    void onMemberApplied(@NonNull AttrsDecorator<?> member, @NonNull View view, long start, long nanos);
+
+  }
+
+}
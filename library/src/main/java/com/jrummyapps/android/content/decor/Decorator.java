@@ -31,7 +31,8 @@ public interface Decorator {
    * @param view
    *     The view to decorate. Never null.
    * @param attrs
-   *     A read-only set of tag attributes.
+   *     A read-only set of tag attributes. Only valid during this call, use
+   *     {@link com.jrummyapps.android.content.AttributeSnapshot#of(AttributeSet)} to keep them.
    */
   void apply(@NonNull View view, @NonNull AttributeSet attrs);
 
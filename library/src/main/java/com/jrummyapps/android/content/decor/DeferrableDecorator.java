@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * A {@link Decorator} that can split its work into a part that needs the live {@link AttributeSet} and a part that
+ * runs later. The attribute set passed to a decorator is only valid during the call, so every decorator that may be
+ * deferred ({@link MainThreadDecorator} and {@link ScheduledDecorator}) implements this interface. Raw attributes can
+ * be kept with {@link com.jrummyapps.android.content.AttributeSnapshot}, but a snapshot can't be passed to
+ * {@code Theme.obtainStyledAttributes}, so styled attributes must be resolved in {@link #prepare(View, AttributeSet)}.
+ */
+public interface DeferrableDecorator extends Decorator {
+
+  /**
+   * Read everything needed from the attributes now and return the rest of the work.
+   *
+   * @param view
+   *     The view to decorate. Never null.
+   * @param attrs
+   *     A read-only set of tag attributes, only valid during this call.
+   * @return The work to run later, or {@code null} if there is nothing to do for this view.
+   */
+  @Nullable Runnable prepare(@NonNull View view, @NonNull AttributeSet attrs);
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.view.View;
+
+/**
+ * A {@link Decorator} that must run on the main thread, for example because it touches state that isn't thread-safe.
+ * When a layout is inflated on a background thread by an
+ * {@link com.jrummyapps.android.content.ObservableAsyncLayoutInflater}, these decorators are prepared during
+ * inflation (see {@link DeferrableDecorator#prepare(View, android.util.AttributeSet)}) and the prepared work runs on
+ * the main thread just before the inflated {@link View} is delivered. Otherwise they are applied immediately like any
+ * decorator.
+ */
+public interface MainThreadDecorator extends DeferrableDecorator {
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.support.annotation.IntDef;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * <p>A {@link Decorator} that doesn't have to run while the view is being inflated. Expensive decorations, like
+ * loading a typeface or tinting drawables, can be moved out of inflation so the first frame is drawn sooner.</p>
+ *
+ * <p>The {@link AttributeSet} passed during inflation is only valid while the tag is parsed, so a scheduled decorator
+ * is a {@link DeferrableDecorator}: it is prepared during inflation and the prepared work runs on the main thread
+ * later. An {@link AttrsDecorator} resolves its attributes during inflation and receives a copy of the values through
+ * {@link AttrsDecorator#apply(View, StyledAttributes)}, which it must override. When the layout is inflated on a
+ * thread other than the main thread, scheduled decorators are applied immediately, unless the layout is inflated by an
+ * {@link com.jrummyapps.android.content.ObservableAsyncLayoutInflater} in which case they are scheduled once the view
+ * is delivered.</p>
+ */
+public interface ScheduledDecorator extends DeferrableDecorator {
+
+  /**
+   * Apply the decorator while the view is inflated, like a plain {@link Decorator}.
+   */
+  int SCHEDULE_IMMEDIATE = 0;
+
+  /**
+   * Apply the decorator at the start of the next frame, before views are measured and drawn. All pending decorations
+   * of this class are applied in that frame, so they never show up undecorated.
+   */
+  int SCHEDULE_BEFORE_DRAW = 1;
+
+  /**
+   * Apply the decorator when the main thread is idle. Pending decorations are applied within a small time budget per
+   * frame, so views may be drawn before they are decorated.
+   */
+  int SCHEDULE_IDLE = 2;
+
+  @IntDef({SCHEDULE_IMMEDIATE, SCHEDULE_BEFORE_DRAW, SCHEDULE_IDLE})
+  @Retention(RetentionPolicy.SOURCE)
+  @interface Schedule {
+
+  }
+
+  /**
+   * When to apply this decorator. Called for every view the decorator applies to.
+   *
+   * @param view
+   *     The view being decorated.
+   * @return One of {@link #SCHEDULE_IMMEDIATE}, {@link #SCHEDULE_BEFORE_DRAW} or {@link #SCHEDULE_IDLE}.
+   */
+  @Schedule int schedule(View view);
+
+}
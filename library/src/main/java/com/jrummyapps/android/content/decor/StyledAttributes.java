@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.util.TypedValue;
+
+/**
+ * A view of a {@link TypedArray} indexed by one decorator's {@link AttrsDecorator#styleable()}. When several
+ * decorators are merged by {@link CompositeAttrsDecorator} the attributes are resolved once for all of them and each
+ * decorator gets one of these, so it can keep using the indices of its own styleable.
+ *
+ * <p>The underlying array is recycled after {@link AttrsDecorator#apply(android.view.View, StyledAttributes)}
+ * returns, so instances must not be kept. Decorators that are applied after inflation get a copy of the values instead,
+ * taken while the layout's parser was still open, since a {@link TypedArray} reads literal strings from the parser's
+ * string pool and must be recycled on the thread that obtained it.</p>
+ */
+public final class StyledAttributes {
+
+  private TypedArray array;
+  private int[] indexMap;
+  private int[] setIndices;
+  private int count;
+
+  /** The copied values, indexed by the decorator's styleable, or {@code null} if backed by {@link #array}. */
+  private final TypedValue[] values;
+  private final Resources resources;
+  private final Resources.Theme theme;
+
+  /**
+   * Creates an instance backed by a {@link TypedArray}. It is pointed at the attributes of each view in turn with
+   * {@code set}.
+   */
+  StyledAttributes() {
+    this.values = null;
+    this.resources = null;
+    this.theme = null;
+  }
+
+  /**
+   * @param array
+   *     The resolved attributes.
+   * @param indexMap
+   *     Maps an index in the decorator's styleable to an index in {@code array}, or {@code null} if they are the same.
+   * @param setIndices
+   *     The indices in the decorator's styleable that have a value.
+   * @param count
+   *     The number of valid entries in {@code setIndices}.
+   * @return This object
+   */
+  StyledAttributes set(TypedArray array, int[] indexMap, int[] setIndices, int count) {
+    this.array = array;
+    this.indexMap = indexMap;
+    this.setIndices = setIndices;
+    this.count = count;
+    return this;
+  }
+
+  private StyledAttributes(TypedValue[] values, int[] setIndices, int count, Resources resources,
+                           Resources.Theme theme) {
+    this.array = null;
+    this.indexMap = null;
+    this.setIndices = setIndices;
+    this.count = count;
+    this.values = values;
+    this.resources = resources;
+    this.theme = theme;
+  }
+
+  /**
+   * Copy the values of a {@link TypedArray} so they can be read after it is recycled.
+   *
+   * @param array
+   *     The resolved attributes, indexed by the decorator's styleable. Not recycled.
+   * @param theme
+   *     The theme references to color state lists and drawables are loaded with.
+   * @return The copy.
+   */
+  static StyledAttributes copyOf(TypedArray array, Resources.Theme theme) {
+    int length = array.length();
+    int indexCount = array.getIndexCount();
+    TypedValue[] values = new TypedValue[length];
+    int[] setIndices = new int[indexCount];
+    int count = 0;
+    for (int i = 0; i < indexCount; i++) {
+      int index = array.getIndex(i);
+      TypedValue value = new TypedValue();
+      if (array.getValue(index, value)) {
+        values[index] = value;
+        setIndices[count++] = index;
+      }
+    }
+    return new StyledAttributes(values, setIndices, count, array.getResources(), theme);
+  }
+
+  private int map(int index) {
+    return indexMap == null ? index : indexMap[index];
+  }
+
+  /**
+   * @return The underlying array if it is indexed by the decorator's own styleable, or {@code null} if the values
+   * were copied or resolved together with other decorators.
+   */
+  TypedArray typedArray() {
+    return indexMap == null ? array : null;
+  }
+
+  /**
+   * @return The indices that have a value. Only the first {@link #getIndexCount()} entries are valid.
+   */
+  int[] setIndices() {
+    return setIndices;
+  }
+
+  /**
+   * @return The number of attributes in the decorator's styleable.
+   */
+  public int length() {
+    if (values != null) {
+      return values.length;
+    }
+    return indexMap == null ? array.length() : indexMap.length;
+  }
+
+  /**
+   * @return The number of attributes that have a value.
+   * @see TypedArray#getIndexCount()
+   */
+  public int getIndexCount() {
+    return count;
+  }
+
+  /**
+   * @see TypedArray#getIndex(int)
+   */
+  public int getIndex(int at) {
+    if (at < 0 || at >= count) {
+      throw new ArrayIndexOutOfBoundsException(at);
+    }
+    return setIndices[at];
+  }
+
+  public Resources getResources() {
+    return values != null ? resources : array.getResources();
+  }
+
+  public boolean hasValue(int index) {
+    if (values != null) {
+      return values[index] != null;
+    }
+    return array.hasValue(map(index));
+  }
+
+  public boolean getValue(int index, TypedValue outValue) {
+    if (values != null) {
+      if (values[index] == null) {
+        return false;
+      }
+      outValue.setTo(values[index]);
+      return true;
+    }
+    return array.getValue(map(index), outValue);
+  }
+
+  @Nullable public TypedValue peekValue(int index) {
+    if (values != null) {
+      return values[index];
+    }
+    return array.peekValue(map(index));
+  }
+
+  @Nullable public String getString(int index) {
+    if (values != null) {
+      CharSequence text = getText(index);
+      return text != null ? text.toString() : null;
+    }
+    return array.getString(map(index));
+  }
+
+  @Nullable public CharSequence getText(int index) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return null;
+      }
+      return value.type == TypedValue.TYPE_STRING ? value.string : value.coerceToString();
+    }
+    return array.getText(map(index));
+  }
+
+  public boolean getBoolean(int index, boolean defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return defValue;
+      }
+      if (isInt(value)) {
+        return value.data != 0;
+      }
+      CharSequence text = value.coerceToString();
+      return text != null ? "true".equalsIgnoreCase(text.toString()) || "1".equals(text.toString()) : defValue;
+    }
+    return array.getBoolean(map(index), defValue);
+  }
+
+  public int getInt(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return defValue;
+      }
+      if (isInt(value)) {
+        return value.data;
+      }
+      CharSequence text = value.coerceToString();
+      try {
+        return text != null ? Integer.decode(text.toString()) : defValue;
+      } catch (NumberFormatException e) {
+        return defValue;
+      }
+    }
+    return array.getInt(map(index), defValue);
+  }
+
+  public int getInteger(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return defValue;
+      }
+      if (isInt(value)) {
+        return value.data;
+      }
+      throw new UnsupportedOperationException("Can't convert to integer: " + value);
+    }
+    return array.getInteger(map(index), defValue);
+  }
+
+  public float getFloat(int index, float defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return defValue;
+      }
+      if (value.type == TypedValue.TYPE_FLOAT) {
+        return value.getFloat();
+      }
+      if (isInt(value)) {
+        return value.data;
+      }
+      CharSequence text = value.coerceToString();
+      try {
+        return text != null ? Float.parseFloat(text.toString()) : defValue;
+      } catch (NumberFormatException e) {
+        return defValue;
+      }
+    }
+    return array.getFloat(map(index), defValue);
+  }
+
+  public int getColor(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return defValue;
+      }
+      if (isInt(value)) {
+        return value.data;
+      }
+      ColorStateList colors = getColorStateList(index);
+      return colors != null ? colors.getDefaultColor() : defValue;
+    }
+    return array.getColor(map(index), defValue);
+  }
+
+  @Nullable public ColorStateList getColorStateList(int index) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return null;
+      }
+      if (isInt(value)) {
+        return ColorStateList.valueOf(value.data);
+      }
+      if (value.resourceId == 0) {
+        throw new UnsupportedOperationException("Can't convert to color state list: " + value);
+      }
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+        return resources.getColorStateList(value.resourceId, theme);
+      }
+      //noinspection deprecation
+      return resources.getColorStateList(value.resourceId);
+    }
+    return array.getColorStateList(map(index));
+  }
+
+  public float getDimension(int index, float defValue) {
+    if (values != null) {
+      TypedValue value = dimension(index);
+      return value != null ? TypedValue.complexToDimension(value.data, resources.getDisplayMetrics()) : defValue;
+    }
+    return array.getDimension(map(index), defValue);
+  }
+
+  public int getDimensionPixelSize(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = dimension(index);
+      return value != null ? TypedValue.complexToDimensionPixelSize(value.data, resources.getDisplayMetrics())
+          : defValue;
+    }
+    return array.getDimensionPixelSize(map(index), defValue);
+  }
+
+  public int getDimensionPixelOffset(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = dimension(index);
+      return value != null ? TypedValue.complexToDimensionPixelOffset(value.data, resources.getDisplayMetrics())
+          : defValue;
+    }
+    return array.getDimensionPixelOffset(map(index), defValue);
+  }
+
+  public int getLayoutDimension(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value != null && isInt(value)) {
+        return value.data;
+      }
+      if (value != null && value.type == TypedValue.TYPE_DIMENSION) {
+        return TypedValue.complexToDimensionPixelSize(value.data, resources.getDisplayMetrics());
+      }
+      return defValue;
+    }
+    return array.getLayoutDimension(map(index), defValue);
+  }
+
+  public int getResourceId(int index, int defValue) {
+    if (values != null) {
+      TypedValue value = values[index];
+      return value != null && value.resourceId != 0 ? value.resourceId : defValue;
+    }
+    return array.getResourceId(map(index), defValue);
+  }
+
+  @Nullable public Drawable getDrawable(int index) {
+    if (values != null) {
+      TypedValue value = values[index];
+      if (value == null) {
+        return null;
+      }
+      if (value.type >= TypedValue.TYPE_FIRST_COLOR_INT && value.type <= TypedValue.TYPE_LAST_COLOR_INT) {
+        return new ColorDrawable(value.data);
+      }
+      if (value.resourceId == 0) {
+        throw new UnsupportedOperationException("Can't convert to drawable: " + value);
+      }
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        return resources.getDrawable(value.resourceId, theme);
+      }
+      //noinspection deprecation
+      return resources.getDrawable(value.resourceId);
+    }
+    return array.getDrawable(map(index));
+  }
+
+  /**
+   * @return The copied value at the index if it is a dimension, or {@code null} if there is none.
+   */
+  private TypedValue dimension(int index) {
+    TypedValue value = values[index];
+    if (value == null) {
+      return null;
+    }
+    if (value.type != TypedValue.TYPE_DIMENSION) {
+      throw new UnsupportedOperationException("Can't convert to dimension: " + value);
+    }
+    return value;
+  }
+
+  private static boolean isInt(TypedValue value) {
+    return value.type >= TypedValue.TYPE_FIRST_INT && value.type <= TypedValue.TYPE_LAST_INT;
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+/**
+ * A {@link Decorator} that only operates on certain {@link View} types. Declaring the target types lets the inflater
+ * skip this decorator entirely for views it would never decorate.
+ */
+public interface TargetedDecorator extends Decorator {
+
+  /**
+   * The types of views this decorator applies to. Subclasses of these types are decorated as well.
+   *
+   * <p>This is only queried the first time a view class is seen, the result must not change afterwards.</p>
+   *
+   * @return a non-null array of {@link View} classes.
+   */
+  @NonNull Class<?>[] targetTypes();
+
+}
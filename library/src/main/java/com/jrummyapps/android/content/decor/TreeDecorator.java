@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+/**
+ * <p>A decorator that needs the inflated hierarchy, for example to apply insets, group accessibility nodes or set
+ * transition names. Tree decorators run once at the end of
+ * {@link com.jrummyapps.android.content.ObservableLayoutInflater#inflate(int, android.view.ViewGroup, boolean)}, when
+ * every view has been added to its parent.</p>
+ *
+ * <p>The inflater remembers the views it created while inflating, so no second walk of the hierarchy is needed. It
+ * visits them once in pre-order (parents before children) and calls every tree decorator for each view before
+ * moving on to the next one.</p>
+ */
+public interface TreeDecorator {
+
+  /**
+   * Decorate a view that was created while inflating a layout.
+   *
+   * @param view
+   *     The view. Its parent and children from the layout have been added.
+   * @param root
+   *     The view returned by {@code inflate}.
+   */
+  void decorate(@NonNull View view, @NonNull View root);
+
+}
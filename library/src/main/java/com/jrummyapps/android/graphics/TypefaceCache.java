@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.graphics;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A process-wide cache of typefaces loaded from assets, for decorators that set fonts on inflated views.</p>
+ *
+ * <ul>
+ * <li>Reads of loaded typefaces don't take a lock.</li>
+ * <li>Each asset is loaded once, even if several threads ask for it at the same time.</li>
+ * <li>Typefaces can be loaded in the background with {@link #load(Context, String, Callback)} or preloaded at
+ * startup with {@link #preload(Context, String...)}.</li>
+ * <li>{@link #applyTo(TextView, String, Typeface)} sets a placeholder and swaps in the real typeface once it has
+ * loaded. It can be called from any thread, so it works in decorators of layouts inflated in the background.</li>
+ * </ul>
+ *
+ * <p>Typefaces are never evicted: the framework keeps loaded fonts in native memory for the life of the process
+ * anyway. Assets that fail to load are remembered and return {@code null}.</p>
+ */
+public final class TypefaceCache {
+
+  private static final String TAG = "TypefaceCache";
+
+  /** Stored for assets that failed to load. */
+  private static final Object MISSING = new Object();
+
+  /**
+   * Callback for {@link #load(Context, String, Callback)}.
+   */
+  public interface Callback {
+
+    /**
+     * Called on the main thread once the typeface was loaded or failed to load.
+     *
+     * @param path
+     *     The asset path.
+     * @param typeface
+     *     The typeface, or {@code null} if the asset could not be loaded.
+     */
+    void onTypefaceLoaded(@NonNull String path, @Nullable Typeface typeface);
+
+  }
+
+  private static class Holder {
+    static final TypefaceCache INSTANCE = new TypefaceCache();
+  }
+
+  /**
+   * @return The process-wide cache.
+   */
+  @NonNull public static TypefaceCache getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /** Values are a {@link Typeface}, {@link #MISSING} or a {@link Load} in progress. */
+  private final ConcurrentHashMap<String, Object> entries = new ConcurrentHashMap<>();
+  /** Guarded by itself, since views may be decorated on the thread they are inflated on. */
+  private final Map<TextView, String> pendingViews = new WeakHashMap<>();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Executor executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+    @Override public Thread newThread(@NonNull final Runnable runnable) {
+      Thread thread = new Thread(new Runnable() {
+
+        @Override public void run() {
+          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+          runnable.run();
+        }
+
+      }, TAG);
+      thread.setDaemon(true);
+      return thread;
+    }
+
+  });
+
+  private TypefaceCache() {
+  }
+
+  /**
+   * Get a typeface only if it was already loaded. Never blocks.
+   *
+   * @param path
+   *     The path of the font in the assets directory.
+   * @return The typeface, or {@code null} if it isn't loaded yet or failed to load.
+   */
+  @Nullable public Typeface peek(@NonNull String path) {
+    Object entry = entries.get(path);
+    return entry instanceof Typeface ? (Typeface) entry : null;
+  }
+
+  /**
+   * Get a typeface, loading it on the calling thread if needed. If another thread is already loading it, this waits
+   * for that load instead of starting another one.
+   *
+   * @param context
+   *     Any context, used for its assets.
+   * @param path
+   *     The path of the font in the assets directory.
+   * @return The typeface, or {@code null} if it could not be loaded.
+   */
+  @Nullable public Typeface get(@NonNull Context context, @NonNull String path) {
+    Object entry = entry(context, path);
+    if (entry instanceof Load) {
+      Load load = (Load) entry;
+      // Runs the load here unless another thread already started it.
+      load.run();
+      return load.await();
+    }
+    return entry instanceof Typeface ? (Typeface) entry : null;
+  }
+
+  /**
+   * Load a typeface in the background.
+   *
+   * @param context
+   *     Any context, used for its assets.
+   * @param path
+   *     The path of the font in the assets directory.
+   * @param callback
+   *     Called on the main thread when the typeface is ready. Called immediately if it is already loaded and this is
+   *     the main thread.
+   */
+  public void load(@NonNull Context context, @NonNull final String path, @NonNull final Callback callback) {
+    Object entry = entry(context, path);
+    if (!(entry instanceof Load)) {
+      final Typeface typeface = entry instanceof Typeface ? (Typeface) entry : null;
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+        callback.onTypefaceLoaded(path, typeface);
+      } else {
+        handler.post(new Runnable() {
+
+          @Override public void run() {
+            callback.onTypefaceLoaded(path, typeface);
+          }
+
+        });
+      }
+      return;
+    }
+    Load load = (Load) entry;
+    load.addCallback(callback);
+    executor.execute(load);
+  }
+
+  /**
+   * Load typefaces in the background so they are ready when views are inflated, e.g. from
+   * {@code Application#onCreate()}.
+   *
+   * @param context
+   *     Any context, used for its assets.
+   * @param paths
+   *     The paths of the fonts in the assets directory.
+   */
+  public void preload(@NonNull Context context, @NonNull String... paths) {
+    for (String path : paths) {
+      Object entry = entry(context, path);
+      if (entry instanceof Load) {
+        executor.execute((Load) entry);
+      }
+    }
+  }
+
+  /**
+   * Set a typeface on a view. If the typeface is loaded it is set immediately. Otherwise the placeholder is set and
+   * the typeface is set on the main thread once it has loaded in the background, unless another typeface was requested
+   * for the view in the meantime. Decorators may call this on the thread a layout is inflated on, as long as the view
+   * isn't attached to a window yet.
+   *
+   * @param view
+   *     The view to set the typeface on.
+   * @param path
+   *     The path of the font in the assets directory.
+   * @param placeholder
+   *     The typeface to show while loading, or {@code null} to leave the view's typeface as is.
+   */
+  public void applyTo(@NonNull final TextView view, @NonNull String path, @Nullable Typeface placeholder) {
+    Typeface typeface = peek(path);
+    if (typeface != null) {
+      synchronized (pendingViews) {
+        pendingViews.remove(view);
+      }
+      view.setTypeface(typeface);
+      return;
+    }
+    if (placeholder != null) {
+      view.setTypeface(placeholder);
+    }
+    synchronized (pendingViews) {
+      pendingViews.put(view, path);
+    }
+    load(view.getContext(), path, new Callback() {
+
+      @Override public void onTypefaceLoaded(@NonNull String path, @Nullable Typeface typeface) {
+        synchronized (pendingViews) {
+          if (!path.equals(pendingViews.get(view))) {
+            return;
+          }
+          pendingViews.remove(view);
+        }
+        if (typeface != null) {
+          view.setTypeface(typeface);
+        }
+      }
+
+    });
+  }
+
+  /**
+   * @return The cached typeface, {@link #MISSING}, or the {@link Load} for the path, which is added if needed.
+   */
+  private Object entry(Context context, String path) {
+    Object entry = entries.get(path);
+    if (entry == null) {
+      Load load = new Load(context.getApplicationContext().getAssets(), path);
+      entry = entries.putIfAbsent(path, load);
+      if (entry == null) {
+        entry = load;
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * A load in progress. It may be run by several threads and executor tasks but only the first one loads the
+   * typeface; everybody else waits or registers a callback.
+   */
+  private final class Load implements Runnable {
+
+    final AssetManager assets;
+    final String path;
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicBoolean started = new AtomicBoolean();
+    private List<Callback> callbacks;
+    private Object result;
+
+    Load(AssetManager assets, String path) {
+      this.assets = assets;
+      this.path = path;
+    }
+
+    @Override public void run() {
+      if (!started.compareAndSet(false, true)) {
+        return;
+      }
+      Object loaded;
+      try {
+        loaded = Typeface.createFromAsset(assets, path);
+      } catch (RuntimeException e) {
+        Log.w(TAG, "Failed to load typeface " + path, e);
+        loaded = MISSING;
+      }
+      if (loaded == null) {
+        loaded = MISSING;
+      }
+      entries.put(path, loaded);
+      finish(loaded);
+    }
+
+    void finish(Object loaded) {
+      final List<Callback> toNotify;
+      synchronized (this) {
+        result = loaded;
+        toNotify = callbacks;
+        callbacks = null;
+      }
+      done.countDown();
+      if (toNotify != null) {
+        final Typeface typeface = loaded instanceof Typeface ? (Typeface) loaded : null;
+        handler.post(new Runnable() {
+
+          @Override public void run() {
+            for (Callback callback : toNotify) {
+              callback.onTypefaceLoaded(path, typeface);
+            }
+          }
+
+        });
+      }
+    }
+
+    void addCallback(final Callback callback) {
+      Object loaded;
+      synchronized (this) {
+        loaded = result;
+        if (loaded == null) {
+          if (callbacks == null) {
+            callbacks = new ArrayList<>(1);
+          }
+          callbacks.add(callback);
+          return;
+        }
+      }
+      final Typeface typeface = loaded instanceof Typeface ? (Typeface) loaded : null;
+      handler.post(new Runnable() {
+
+        @Override public void run() {
+          callback.onTypefaceLoaded(path, typeface);
+        }
+
+      });
+    }
+
+    Typeface await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          done.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return result instanceof Typeface ? (Typeface) result : null;
+    }
+
+  }
+
+}
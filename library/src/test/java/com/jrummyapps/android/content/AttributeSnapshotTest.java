@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.util.AttributeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for {@link AttributeSnapshot}.
+ */
+public class AttributeSnapshotTest {
+
+  private static final String ANDROID = "http://schemas.android.com/apk/res/android";
+
+  @Test
+  public void of_copiesTheAttributes() throws Exception {
+    AttributeSet attrs = attributes("text", "Hello", "textSize", "12sp");
+    when(attrs.getAttributeNameResource(0)).thenReturn(0x0101014f);
+    when(attrs.getAttributeResourceValue(1, 0)).thenReturn(0x7f050001);
+    when(attrs.getPositionDescription()).thenReturn("Binary XML file line #12");
+    when(attrs.getStyleAttribute()).thenReturn(0x7f0a0001);
+
+    AttributeSnapshot snapshot = AttributeSnapshot.of(attrs);
+    reset(attrs);
+
+    assertEquals(2, snapshot.getAttributeCount());
+    assertEquals("text", snapshot.getAttributeName(0));
+    assertEquals("Hello", snapshot.getAttributeValue(0));
+    assertEquals("12sp", snapshot.getAttributeValue(ANDROID, "textSize"));
+    assertNull(snapshot.getAttributeValue(ANDROID, "hint"));
+    assertEquals(0x0101014f, snapshot.getAttributeNameResource(0));
+    assertEquals(0x7f050001, snapshot.getAttributeResourceValue(1, -1));
+    assertEquals(-1, snapshot.getAttributeResourceValue(0, -1));
+    assertEquals("Binary XML file line #12", snapshot.getPositionDescription());
+    assertEquals(0x7f0a0001, snapshot.getStyleAttribute());
+  }
+
+  @Test
+  public void of_returnsSnapshotsAsIs() throws Exception {
+    AttributeSnapshot snapshot = AttributeSnapshot.of(attributes("text", "Hello"));
+    assertSame(snapshot, AttributeSnapshot.of(snapshot));
+  }
+
+  @Test
+  public void typedValues_areParsedLikeXmlUtils() throws Exception {
+    AttributeSnapshot snapshot = AttributeSnapshot.of(attributes(
+        "decimal", "-42", "hex", "0x1F", "color", "#ff0000", "octal", "010", "bool", "true", "number", "1",
+        "float", "1.5", "gravity", "center", "invalid", "abc"));
+    assertEquals(-42, snapshot.getAttributeIntValue(null, "decimal", 0));
+    assertEquals(31, snapshot.getAttributeIntValue(null, "hex", 0));
+    assertEquals(0xff0000, snapshot.getAttributeIntValue(null, "color", 0));
+    assertEquals(8, snapshot.getAttributeIntValue(null, "octal", 0));
+    assertEquals(7, snapshot.getAttributeIntValue(null, "invalid", 7));
+    assertEquals(7, snapshot.getAttributeIntValue(null, "missing", 7));
+    assertTrue(snapshot.getAttributeBooleanValue(null, "bool", false));
+    assertTrue(snapshot.getAttributeBooleanValue(null, "number", false));
+    assertEquals(1.5f, snapshot.getAttributeFloatValue(null, "float", 0f), 0f);
+    assertEquals(1, snapshot.getAttributeListValue(null, "gravity", new String[]{"top", "center"}, -1));
+  }
+
+  @Test
+  public void identicalTags_haveEqualSnapshots() throws Exception {
+    AttributeSnapshot first = AttributeSnapshot.of(attributes("text", "Hello"));
+    AttributeSnapshot second = AttributeSnapshot.of(attributes("text", new String("Hello")));
+    assertNotSame(first, second);
+    // Identical tags share interned strings.
+    assertSame(first.getAttributeValue(0), second.getAttributeValue(0));
+  }
+
+  /**
+   * @return A set of attributes without namespaces, given as name/value pairs.
+   */
+  private static AttributeSet attributes(String... namesAndValues) {
+    AttributeSet attrs = mock(AttributeSet.class);
+    when(attrs.getAttributeCount()).thenReturn(namesAndValues.length / 2);
+    for (int i = 0; i < namesAndValues.length / 2; i++) {
+      when(attrs.getAttributeName(i)).thenReturn(namesAndValues[i * 2]);
+      when(attrs.getAttributeValue(i)).thenReturn(namesAndValues[i * 2 + 1]);
+    }
+    return attrs;
+  }
+
+}
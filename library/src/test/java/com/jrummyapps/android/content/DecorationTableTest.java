@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DecorationTable} and its builder.
+ */
+public class DecorationTableTest {
+
+  private static final int LAYOUT_MAIN = 0x7f030001;
+  private static final int LAYOUT_ITEM = 0x7f030002;
+  private static final int LAYOUT_OTHER = 0x7f030003;
+
+  @Test
+  public void isDecorated_onlyForListedLines() throws Exception {
+    DecorationTable table = new DecorationTable.Builder(0x7f010001)
+        .add(LAYOUT_MAIN, 12, 4)
+        .add(LAYOUT_ITEM)
+        .build();
+    assertTrue(table.isDecorated(LAYOUT_MAIN, 4));
+    assertTrue(table.isDecorated(LAYOUT_MAIN, 12));
+    assertFalse(table.isDecorated(LAYOUT_MAIN, 5));
+    assertFalse(table.isDecorated(LAYOUT_ITEM, 4));
+  }
+
+  @Test
+  public void isDecorated_forLayoutsThatWereNotScanned() throws Exception {
+    DecorationTable table = new DecorationTable.Builder(0x7f010001).add(LAYOUT_MAIN, 4).build();
+    assertTrue(table.isDecorated(LAYOUT_OTHER, 1));
+  }
+
+  @Test
+  public void build_mergesTheLinesOfEveryFileOfALayout() throws Exception {
+    // E.g. layout/main.xml and layout-land/main.xml, added in any order.
+    DecorationTable table = new DecorationTable.Builder(0x7f010001)
+        .add(LAYOUT_MAIN, 8, 4)
+        .add(LAYOUT_ITEM, 3)
+        .add(LAYOUT_MAIN, 6, 4)
+        .build();
+    assertTrue(table.isDecorated(LAYOUT_MAIN, 4));
+    assertTrue(table.isDecorated(LAYOUT_MAIN, 6));
+    assertTrue(table.isDecorated(LAYOUT_MAIN, 8));
+    assertFalse(table.isDecorated(LAYOUT_MAIN, 5));
+    assertTrue(table.isDecorated(LAYOUT_ITEM, 3));
+    assertFalse(table.isDecorated(LAYOUT_ITEM, 4));
+  }
+
+  @Test
+  public void build_growsPastTheInitialCapacity() throws Exception {
+    DecorationTable.Builder builder = new DecorationTable.Builder(0x7f010001);
+    for (int i = 100; i > 0; i--) {
+      builder.add(0x7f030000 + i, i);
+    }
+    DecorationTable table = builder.build();
+    for (int i = 1; i <= 100; i++) {
+      assertTrue(table.isDecorated(0x7f030000 + i, i));
+      assertFalse(table.isDecorated(0x7f030000 + i, i + 1));
+    }
+  }
+
+  @Test
+  public void attributes_areSorted() throws Exception {
+    DecorationTable table = new DecorationTable.Builder(0x7f010003, 0x01010095, 0x7f010001).build();
+    assertArrayEquals(new int[]{0x01010095, 0x7f010001, 0x7f010003}, table.attributes());
+  }
+
+}
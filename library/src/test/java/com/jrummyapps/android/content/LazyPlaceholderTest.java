@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xmlpull.v1.XmlPullParser;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for finding the tags of {@link LazyPlaceholder}s again.
+ */
+public class LazyPlaceholderTest {
+
+  /**
+   * Two lazy FrameLayouts on line 2, the first with a child, and an include that isn't created as a view:
+   *
+   * <pre>
+   * &lt;LinearLayout&gt;
+   *   &lt;include/&gt;&lt;FrameLayout lazy&gt;&lt;TextView/&gt;&lt;/FrameLayout&gt;&lt;FrameLayout lazy/&gt;
+   * &lt;/LinearLayout&gt;
+   * </pre>
+   */
+  private static final Object[][] TWO_LAZY_TAGS_ON_ONE_LINE = {
+      {XmlPullParser.START_TAG, 1, 1, "LinearLayout"},
+      {XmlPullParser.START_TAG, 2, 2, "include"},
+      {XmlPullParser.END_TAG, 2, 2, "include"},
+      {XmlPullParser.START_TAG, 2, 2, "FrameLayout"},
+      {XmlPullParser.START_TAG, 2, 3, "TextView"},
+      {XmlPullParser.END_TAG, 2, 3, "TextView"},
+      {XmlPullParser.END_TAG, 2, 2, "FrameLayout"},
+      {XmlPullParser.START_TAG, 2, 2, "FrameLayout"},
+      {XmlPullParser.END_TAG, 2, 2, "FrameLayout"},
+      {XmlPullParser.END_TAG, 3, 1, "LinearLayout"},
+  };
+
+  @Test
+  public void findTag_tellsTagsOnOneLineApart() throws Exception {
+    // Ordinal 0 is the first FrameLayout, the 4th event, and ordinal 2 the second one, the 8th event.
+    assertEquals(4, LazyPlaceholder.findTag(parser(TWO_LAZY_TAGS_ON_ONE_LINE), 2, 2, 0));
+    assertEquals(8, LazyPlaceholder.findTag(parser(TWO_LAZY_TAGS_ON_ONE_LINE), 2, 2, 2));
+  }
+
+  @Test
+  public void findTag_rejectsTagsThatDontMatch() throws Exception {
+    // Ordinal 1 is the TextView, which is deeper.
+    assertEquals(-1, LazyPlaceholder.findTag(parser(TWO_LAZY_TAGS_ON_ONE_LINE), 2, 2, 1));
+    assertEquals(-1, LazyPlaceholder.findTag(parser(TWO_LAZY_TAGS_ON_ONE_LINE), 2, 2, 3));
+    assertEquals(-1, LazyPlaceholder.findTag(parser(TWO_LAZY_TAGS_ON_ONE_LINE), 4, 2, 0));
+  }
+
+  @Test
+  public void nextOrdinal_matchesFindTag() throws Exception {
+    XmlPullParser parser = parser(TWO_LAZY_TAGS_ON_ONE_LINE);
+    InflationFrame frame = InflationFrame.push(0, parser, false, 1);
+    try {
+      int events = 0;
+      int type;
+      while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+        events++;
+        if (type == XmlPullParser.START_TAG && LazyPlaceholder.createsView(parser.getName())) {
+          int ordinal = frame.nextOrdinal();
+          int line = parser.getLineNumber();
+          int depth = parser.getDepth();
+          assertEquals(events, LazyPlaceholder.findTag(parser(TWO_LAZY_TAGS_ON_ONE_LINE), line, depth, ordinal));
+        }
+      }
+    } finally {
+      InflationFrame.pop(frame);
+    }
+  }
+
+  @Test
+  public void startAt_continuesTheOrdinalsOfTheRootLine() throws Exception {
+    XmlPullParser parser = parser(TWO_LAZY_TAGS_ON_ONE_LINE);
+    // Inflate the first FrameLayout on its own, as its placeholder would.
+    for (int i = 0; i < 3; i++) {
+      parser.next();
+    }
+    InflationFrame frame = InflationFrame.push(0, parser, false, 2);
+    try {
+      frame.startAt(2, 0);
+      parser.next();
+      assertEquals(0, frame.nextOrdinal());
+      parser.next();
+      assertEquals(1, frame.nextOrdinal());
+    } finally {
+      InflationFrame.pop(frame);
+    }
+  }
+
+  /**
+   * @return A parser that returns the events {type, line, depth, name} and then the end of the document.
+   */
+  private static XmlPullParser parser(final Object[][] events) {
+    return mock(XmlPullParser.class, new Answer<Object>() {
+
+      private int current = -1;
+
+      @Override public Object answer(InvocationOnMock invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        if (method.equals("next")) {
+          current++;
+          return current < events.length ? events[current][0] : XmlPullParser.END_DOCUMENT;
+        }
+        Object[] event = current >= 0 && current < events.length ? events[current] : null;
+        switch (method) {
+          case "getLineNumber":
+            return event != null ? event[1] : -1;
+          case "getDepth":
+            return event != null ? event[2] : 0;
+          case "getName":
+            return event != null ? event[3] : null;
+          default:
+            return RETURNS_DEFAULTS.answer(invocation);
+        }
+      }
+
+    });
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MetricTable}.
+ */
+public class MetricTableTest {
+
+  @Test
+  public void record_aggregatesPerKey() throws Exception {
+    MetricTable table = new MetricTable(8);
+    table.record("TextView", 500);
+    table.record("TextView", 3000);
+    table.record("ImageView", 1500);
+    Map<Object, InflationMonitor.Stat> stats = byKey(table.snapshot("other"));
+    assertEquals(2, stats.size());
+
+    InflationMonitor.Stat textView = stats.get("TextView");
+    assertEquals(2, textView.getCount());
+    assertEquals(3500, textView.getTotalNanos());
+    assertEquals(3000, textView.getMaxNanos());
+    // Under a microsecond goes in bucket 0, [2, 4) microseconds in bucket 2.
+    assertEquals(1, textView.getBucket(0));
+    assertEquals(1, textView.getBucket(2));
+
+    InflationMonitor.Stat imageView = stats.get("ImageView");
+    assertEquals(1, imageView.getCount());
+    assertEquals(1, imageView.getBucket(1));
+  }
+
+  @Test
+  public void record_intKeys() throws Exception {
+    MetricTable table = new MetricTable(4);
+    table.record(0x7f030001, 100);
+    table.record(0x7f030001, 200);
+    table.record(0x7f030002, 300);
+    Map<Object, InflationMonitor.Stat> stats = byKey(table.snapshot(0));
+    assertEquals(2, stats.get(0x7f030001).getCount());
+    assertEquals(300, stats.get(0x7f030001).getTotalNanos());
+    assertEquals(1, stats.get(0x7f030002).getCount());
+  }
+
+  @Test
+  public void record_overflowsOnceFull() throws Exception {
+    MetricTable table = new MetricTable(2);
+    table.record("a", 1);
+    table.record("b", 1);
+    table.record("c", 1);
+    table.record("d", 1);
+    Map<Object, InflationMonitor.Stat> stats = byKey(table.snapshot("other"));
+    assertEquals(3, stats.size());
+    assertEquals(1, stats.get("a").getCount());
+    assertEquals(1, stats.get("b").getCount());
+    assertEquals(2, stats.get("other").getCount());
+  }
+
+  @Test
+  public void reset_clearsCountersAndKeys() throws Exception {
+    MetricTable table = new MetricTable(2);
+    table.record("a", 1000);
+    table.record("b", 1000);
+    table.record("c", 1000);
+    table.reset();
+    assertEquals(0, table.snapshot("other").length);
+    table.record("d", 1);
+    table.record("e", 1);
+    Map<Object, InflationMonitor.Stat> stats = byKey(table.snapshot("other"));
+    // The old keys released their slots, so both new keys fit.
+    assertEquals(2, stats.size());
+    assertEquals(1, stats.get("d").getCount());
+    assertEquals(1, stats.get("e").getCount());
+  }
+
+  @Test
+  public void recordViewFactory_sharesStatPerClass() throws Exception {
+    InflationMonitor monitor = new InflationMonitor(2);
+    monitor.recordViewFactory(new Factory(), 100);
+    monitor.recordViewFactory(new Factory(), 200);
+    InflationMonitor.Stat[] stats = monitor.snapshot().getViewFactory();
+    assertEquals(1, stats.length);
+    assertEquals(Factory.class, stats[0].getKey());
+    assertEquals(2, stats[0].getCount());
+    assertEquals(300, stats[0].getTotalNanos());
+    assertTrue(monitor.snapshot().toString().contains("\"key\":\"" + Factory.class.getName() + "\""));
+  }
+
+  private static final class Factory implements ObservableViewFactory {
+
+    @Override public View onViewCreated(View view, AttributeSet attrs) {
+      return view;
+    }
+
+  }
+
+  private static Map<Object, InflationMonitor.Stat> byKey(InflationMonitor.Stat[] stats) {
+    Map<Object, InflationMonitor.Stat> map = new HashMap<>();
+    for (InflationMonitor.Stat stat : stats) {
+      map.put(stat.getKey(), stat);
+    }
+    return map;
+  }
+
+}
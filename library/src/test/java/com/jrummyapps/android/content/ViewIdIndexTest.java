@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jrummyapps.observableinflator.R;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for {@link ViewIdIndex}.
+ */
+public class ViewIdIndexTest {
+
+  @Test
+  public void attach_indexesTheRecordedViews() throws Exception {
+    View root = root(0x7f0b0001);
+    View title = view(0x7f0b0002);
+    View noId = view(View.NO_ID);
+    ViewIdIndex.attach(root, Arrays.asList(root, title, noId));
+
+    ViewIdIndex index = ViewIdIndex.of(root);
+    assertNotNull(index);
+    assertEquals(2, index.size());
+    assertSame(root, index.get(0x7f0b0001));
+    assertSame(title, index.get(0x7f0b0002));
+    assertNull(index.get(0x7f0b0003));
+    assertNull(index.get(View.NO_ID));
+  }
+
+  @Test
+  public void attach_keepsTheFirstViewWithAnId() throws Exception {
+    View root = root(View.NO_ID);
+    View first = view(0x7f0b0002);
+    View second = view(0x7f0b0002);
+    ViewIdIndex.attach(root, Arrays.asList(root, first, second));
+    assertSame(first, ViewIdIndex.of(root).get(0x7f0b0002));
+  }
+
+  @Test
+  public void attach_addsLaterInflationsToTheSameIndex() throws Exception {
+    View root = root(View.NO_ID);
+    ViewIdIndex.attach(root, Arrays.asList(root, view(0x7f0b0001)));
+    List<View> attached = new ArrayList<>();
+    for (int id = 0x7f0b0100; id < 0x7f0b0200; id++) {
+      attached.add(view(id));
+    }
+    // More views than the index was sized for, so it has to grow.
+    ViewIdIndex.attach(root, attached);
+
+    ViewIdIndex index = ViewIdIndex.of(root);
+    assertEquals(257, index.size());
+    assertNotNull(index.get(0x7f0b0001));
+    for (int i = 0; i < attached.size(); i++) {
+      assertSame(attached.get(i), index.get(0x7f0b0100 + i));
+    }
+  }
+
+  @Test
+  public void attach_walksTheHierarchyWithoutRecordedViews() throws Exception {
+    ViewGroup root = mock(ViewGroup.class);
+    storeTags(root);
+    when(root.getId()).thenReturn(0x7f0b0001);
+    View child = view(0x7f0b0002);
+    when(root.getChildCount()).thenReturn(1);
+    when(root.getChildAt(0)).thenReturn(child);
+    ViewIdIndex.attach(root, null);
+    assertSame(child, ViewIdIndex.of(root).get(0x7f0b0002));
+  }
+
+  @Test
+  public void findViewById_fallsBackToTheHierarchy() throws Exception {
+    View root = root(View.NO_ID);
+    View indexed = view(0x7f0b0002);
+    View added = view(0x7f0b0003);
+    ViewIdIndex.attach(root, Arrays.asList(root, indexed));
+    when(root.findViewById(0x7f0b0003)).thenReturn(added);
+
+    assertSame(indexed, ViewIdIndex.findViewById(root, 0x7f0b0002));
+    assertSame(added, ViewIdIndex.findViewById(root, 0x7f0b0003));
+    verify(root, never()).findViewById(0x7f0b0002);
+  }
+
+  private static View view(int id) {
+    View view = mock(View.class);
+    when(view.getId()).thenReturn(id);
+    return view;
+  }
+
+  /**
+   * @return A view that keeps the index set as its tag.
+   */
+  private static View root(int id) {
+    View root = view(id);
+    storeTags(root);
+    return root;
+  }
+
+  private static void storeTags(View view) {
+    final Object[] tag = new Object[1];
+    doAnswer(new Answer<Void>() {
+
+      @Override public Void answer(InvocationOnMock invocation) throws Throwable {
+        tag[0] = invocation.getArguments()[1];
+        return null;
+      }
+
+    }).when(view).setTag(eq(R.id.view_id_index), any());
+    when(view.getTag(R.id.view_id_index)).thenAnswer(new Answer<Object>() {
+
+      @Override public Object answer(InvocationOnMock invocation) throws Throwable {
+        return tag[0];
+      }
+
+    });
+  }
+
+}
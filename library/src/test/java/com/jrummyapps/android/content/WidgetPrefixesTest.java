@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link WidgetPrefixes}. The cache is process-wide, so every test uses its own tag names or
+ * class loaders.
+ */
+public class WidgetPrefixesTest {
+
+  @Test
+  public void resolve_findsPrefixOnce() throws Exception {
+    CountingClassLoader loader = new CountingClassLoader();
+    assertEquals("android.widget.", WidgetPrefixes.resolve("TextView", loader));
+    assertEquals(Arrays.asList("android.widget.TextView"), loader.requested);
+    loader.requested.clear();
+    assertEquals("android.widget.", WidgetPrefixes.resolve("TextView", loader));
+    assertTrue(loader.requested.isEmpty());
+  }
+
+  @Test
+  public void resolve_cachesMisses() throws Exception {
+    CountingClassLoader loader = new CountingClassLoader();
+    assertNull(WidgetPrefixes.resolve("NoSuchWidget", loader));
+    // Prefixes added by other tests are searched after the default ones.
+    assertEquals(Arrays.asList("android.widget.NoSuchWidget", "android.webkit.NoSuchWidget"),
+        loader.requested.subList(0, 2));
+    loader.requested.clear();
+    assertNull(WidgetPrefixes.resolve("NoSuchWidget", loader));
+    assertTrue(loader.requested.isEmpty());
+  }
+
+  @Test
+  public void resolve_doesNotShareMissesAcrossClassLoaders() throws Exception {
+    ClassLoader empty = new ClassLoader(null) {
+
+      @Override protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        throw new ClassNotFoundException(name);
+      }
+
+    };
+    assertNull(WidgetPrefixes.resolve("TextView", empty));
+    assertEquals("android.widget.", WidgetPrefixes.resolve("TextView", new CountingClassLoader()));
+  }
+
+  @Test
+  public void add_searchesNewPrefixesLastAndForgetsMisses() throws Exception {
+    CountingClassLoader loader = new CountingClassLoader();
+    assertNull(WidgetPrefixes.resolve("ViewIdIndex", loader));
+    WidgetPrefixes.add("com.jrummyapps.android.content");
+    loader.requested.clear();
+    assertEquals("com.jrummyapps.android.content.", WidgetPrefixes.resolve("ViewIdIndex", loader));
+    assertEquals(Arrays.asList("android.widget.ViewIdIndex", "android.webkit.ViewIdIndex",
+        "com.jrummyapps.android.content.ViewIdIndex"), loader.requested);
+  }
+
+  /**
+   * Records every class the inflater looks up.
+   */
+  private static class CountingClassLoader extends ClassLoader {
+
+    final List<String> requested = new ArrayList<>();
+
+    CountingClassLoader() {
+      super(WidgetPrefixesTest.class.getClassLoader());
+    }
+
+    @Override protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      requested.add(name);
+      return super.loadClass(name, resolve);
+    }
+
+  }
+
+}
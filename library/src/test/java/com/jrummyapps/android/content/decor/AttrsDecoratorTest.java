@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for how {@link AttrsDecorator} hands the set attributes to its subclasses.
+ */
+public class AttrsDecoratorTest {
+
+  @Test
+  public void apply_passesOnlySetIndices() throws Exception {
+    TypedArray values = typedArray(0, 2);
+    RecordingDecorator<View> decorator = new RecordingDecorator<>(View.class, values);
+    decorator.apply(mock(View.class), mock(AttributeSet.class));
+    assertArrayEquals(new int[]{0, 2}, decorator.setIndices);
+    verify(values).recycle();
+  }
+
+  @Test
+  public void apply_skipsViewsWithoutSetAttributes() throws Exception {
+    TypedArray values = typedArray();
+    RecordingDecorator<View> decorator = new RecordingDecorator<>(View.class, values);
+    decorator.apply(mock(View.class), mock(AttributeSet.class));
+    assertNull(decorator.setIndices);
+    verify(values).recycle();
+  }
+
+  @Test
+  public void apply_skipsViewsOfOtherClasses() throws Exception {
+    TypedArray values = typedArray(0);
+    RecordingDecorator<TextView> decorator = new RecordingDecorator<>(TextView.class, values);
+    decorator.apply(mock(View.class), mock(AttributeSet.class));
+    assertNull(decorator.setIndices);
+    verifyZeroInteractions(values);
+  }
+
+  @Test
+  public void apply_failsWhenNoApplyMethodIsOverridden() throws Exception {
+    final TypedArray values = typedArray(1);
+    AttrsDecorator<View> decorator = new AttrsDecorator<View>() {
+
+      @Override protected TypedArray obtainAttributes(Context context, AttributeSet attributeSet) {
+        return values;
+      }
+
+      @NonNull @Override protected Class<View> clazz() {
+        return View.class;
+      }
+
+      @Override protected int[] styleable() {
+        return new int[]{1, 2, 3};
+      }
+
+    };
+    try {
+      decorator.apply(mock(View.class), mock(AttributeSet.class));
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException expected) {
+      assertTrue(expected.getMessage().contains("must override apply(View, TypedArray)"));
+    }
+    verify(values).recycle();
+  }
+
+  @Test
+  public void apply_passesTypedArrayToMainThreadDecoratorAppliedImmediately() throws Exception {
+    TypedArray values = typedArray(0, 2);
+    RecordingDecorator<View> decorator = new MainThreadRecordingDecorator(values);
+    decorator.apply(mock(View.class), mock(AttributeSet.class));
+    assertArrayEquals(new int[]{0, 2}, decorator.setIndices);
+    verify(values).recycle();
+  }
+
+  @Test
+  public void prepare_failsWhenDeferredWithoutStyledApply() throws Exception {
+    TypedArray values = typedArray(0);
+    when(values.length()).thenReturn(3);
+    when(values.getValue(eq(0), any(TypedValue.class))).thenReturn(true);
+    RecordingDecorator<View> decorator = new MainThreadRecordingDecorator(values);
+    View view = mock(View.class);
+    when(view.getContext()).thenReturn(mock(Context.class));
+    Runnable prepared = decorator.prepare(view, mock(AttributeSet.class));
+    assertNotNull(prepared);
+    try {
+      prepared.run();
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException expected) {
+      assertTrue(expected.getMessage().contains("must override apply(View, StyledAttributes)"));
+    }
+    assertNull(decorator.setIndices);
+  }
+
+  private static TypedArray typedArray(int... setIndices) {
+    TypedArray values = mock(TypedArray.class);
+    when(values.getIndexCount()).thenReturn(setIndices.length);
+    for (int i = 0; i < setIndices.length; i++) {
+      when(values.getIndex(i)).thenReturn(setIndices[i]);
+    }
+    return values;
+  }
+
+  private static class RecordingDecorator<T extends View> extends AttrsDecorator<T> {
+
+    final Class<T> clazz;
+    final TypedArray values;
+    int[] setIndices;
+
+    RecordingDecorator(Class<T> clazz, TypedArray values) {
+      this.clazz = clazz;
+      this.values = values;
+    }
+
+    @Override protected TypedArray obtainAttributes(Context context, AttributeSet attributeSet) {
+      return values;
+    }
+
+    @Override protected void apply(@NonNull T view, @NonNull TypedArray typedArray, @NonNull int[] setIndices,
+                                   int count) {
+      this.setIndices = Arrays.copyOf(setIndices, count);
+    }
+
+    @NonNull @Override protected Class<T> clazz() {
+      return clazz;
+    }
+
+    @Override protected int[] styleable() {
+      return new int[]{1, 2, 3};
+    }
+
+  }
+
+  private static class MainThreadRecordingDecorator extends RecordingDecorator<View> implements MainThreadDecorator {
+
+    MainThreadRecordingDecorator(TypedArray values) {
+      super(View.class, values);
+    }
+
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 JRummy Apps Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jrummyapps.android.content.decor;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for merging {@link AttrsDecorator}s and mapping the merged attributes back to each decorator.
+ */
+public class CompositeAttrsDecoratorTest {
+
+  private static final int ATTR_A = 0x7f010010;
+  private static final int ATTR_B = 0x7f010020;
+  private static final int ATTR_C = 0x7f010030;
+
+  @Test
+  public void merge_combinesDecoratorsWithTheSameStyle() throws Exception {
+    MergeableDecorator first = new MergeableDecorator(0, ATTR_C, ATTR_A);
+    Decorator plain = mock(Decorator.class);
+    MergeableDecorator second = new MergeableDecorator(0, ATTR_B, ATTR_C);
+    Decorator[] merged = CompositeAttrsDecorator.merge(new Decorator[]{first, plain, second});
+    assertEquals(2, merged.length);
+    assertTrue(merged[0] instanceof CompositeAttrsDecorator);
+    assertArrayEquals(new AttrsDecorator<?>[]{first, second}, ((CompositeAttrsDecorator) merged[0]).getMembers());
+    assertSame(plain, merged[1]);
+  }
+
+  @Test
+  public void merge_keepsDecoratorsWithOtherStyles() throws Exception {
+    Decorator[] decorators = {new MergeableDecorator(0, ATTR_A), new MergeableDecorator(1, ATTR_B)};
+    assertSame(decorators, CompositeAttrsDecorator.merge(decorators));
+  }
+
+  @Test
+  public void apply_mapsIndicesToEachMembersStyleable() throws Exception {
+    MergeableDecorator first = new MergeableDecorator(0, ATTR_C, ATTR_A);
+    MergeableDecorator second = new MergeableDecorator(0, ATTR_B, ATTR_C);
+    Decorator composite = CompositeAttrsDecorator.merge(new Decorator[]{first, second})[0];
+
+    // The merged styleable is sorted: {ATTR_A, ATTR_B, ATTR_C}. ATTR_A and ATTR_C have a value.
+    TypedArray values = mock(TypedArray.class);
+    when(values.getIndexCount()).thenReturn(2);
+    when(values.getIndex(0)).thenReturn(0);
+    when(values.getIndex(1)).thenReturn(2);
+    when(values.getInt(eq(0), anyInt())).thenReturn(100);
+    when(values.getInt(eq(2), anyInt())).thenReturn(300);
+    View view = viewResolving(values, new int[]{ATTR_A, ATTR_B, ATTR_C});
+
+    composite.apply(view, mock(AttributeSet.class));
+
+    // first declares {ATTR_C, ATTR_A}, so ATTR_A is its index 1 and ATTR_C its index 0.
+    assertEquals(Arrays.asList("1=100", "0=300"), first.applied);
+    // second declares {ATTR_B, ATTR_C}, so it only sees ATTR_C, at index 1.
+    assertEquals(Arrays.asList("1=300"), second.applied);
+    verify(values).recycle();
+  }
+
+  @Test
+  public void apply_skipsMembersWithoutSetAttributes() throws Exception {
+    MergeableDecorator first = new MergeableDecorator(0, ATTR_A);
+    MergeableDecorator second = new MergeableDecorator(0, ATTR_B);
+    Decorator composite = CompositeAttrsDecorator.merge(new Decorator[]{first, second})[0];
+
+    TypedArray values = mock(TypedArray.class);
+    when(values.getIndexCount()).thenReturn(1);
+    when(values.getIndex(0)).thenReturn(1);
+    when(values.getInt(eq(1), anyInt())).thenReturn(200);
+    View view = viewResolving(values, new int[]{ATTR_A, ATTR_B});
+
+    composite.apply(view, mock(AttributeSet.class));
+
+    assertTrue(first.applied.isEmpty());
+    assertEquals(Arrays.asList("0=200"), second.applied);
+    verify(values).recycle();
+  }
+
+  @Test
+  public void apply_reportsEachAppliedMemberToTheTimer() throws Exception {
+    MergeableDecorator first = new MergeableDecorator(0, ATTR_A);
+    MergeableDecorator second = new MergeableDecorator(0, ATTR_B);
+    CompositeAttrsDecorator composite =
+        (CompositeAttrsDecorator) CompositeAttrsDecorator.merge(new Decorator[]{first, second})[0];
+
+    TypedArray values = mock(TypedArray.class);
+    when(values.getIndexCount()).thenReturn(1);
+    when(values.getIndex(0)).thenReturn(0);
+    View view = viewResolving(values, new int[]{ATTR_A, ATTR_B});
+    CompositeAttrsDecorator.MemberTimer timer = mock(CompositeAttrsDecorator.MemberTimer.class);
+
+    composite.apply(view, mock(AttributeSet.class), timer);
+
+    // Only the member with a set attribute is applied and timed.
+    verify(timer).onMemberApplied(same(first), same(view), anyLong(), anyLong());
+    verifyNoMoreInteractions(timer);
+  }
+
+  /**
+   * @return A view whose theme resolves the merged styleable to {@code values}.
+   */
+  private static View viewResolving(TypedArray values, int[] styleable) {
+    Resources.Theme theme = mock(Resources.Theme.class);
+    when(theme.obtainStyledAttributes(any(AttributeSet.class), eq(styleable), eq(0), eq(0))).thenReturn(values);
+    Context context = mock(Context.class);
+    when(context.getTheme()).thenReturn(theme);
+    View view = mock(View.class);
+    when(view.getContext()).thenReturn(context);
+    return view;
+  }
+
+  private static class MergeableDecorator extends AttrsDecorator<View> {
+
+    final int defStyleAttr;
+    final int[] styleable;
+    final List<String> applied = new ArrayList<>();
+
+    MergeableDecorator(int defStyleAttr, int... styleable) {
+      this.defStyleAttr = defStyleAttr;
+      this.styleable = styleable;
+    }
+
+    @Override protected void apply(@NonNull View view, @NonNull StyledAttributes attributes) {
+      for (int i = 0; i < attributes.getIndexCount(); i++) {
+        int index = attributes.getIndex(i);
+        applied.add(index + "=" + attributes.getInt(index, -1));
+      }
+    }
+
+    @Override protected boolean isMergeable() {
+      return true;
+    }
+
+    @Override protected int defStyleAttr() {
+      return defStyleAttr;
+    }
+
+    @NonNull @Override protected Class<View> clazz() {
+      return View.class;
+    }
+
+    @Override protected int[] styleable() {
+      return styleable;
+    }
+
+  }
+
+}